@@ -0,0 +1,98 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeBuilder;
+import org.globsframework.core.metamodel.GlobTypeBuilderFactory;
+import org.globsframework.core.metamodel.fields.*;
+import org.globsframework.core.model.Glob;
+
+// Types shared by the benchmarks.
+public class BenchmarkTypes {
+
+    public static class Query {
+        public static final GlobType TYPE;
+        public static final StringField name;
+        public static final IntegerField count;
+        public static final BooleanField active;
+        public static final StringArrayField tags;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Query");
+            name = typeBuilder.declareStringField("name");
+            count = typeBuilder.declareIntegerField("count");
+            active = typeBuilder.declareBooleanField("active");
+            tags = typeBuilder.declareStringArrayField("tags");
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static class Header {
+        public static final GlobType TYPE;
+        public static final StringField requestId;
+        public static final StringField userAgent;
+        public static final StringField authorization;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Header");
+            requestId = typeBuilder.declareStringField("X-Request-Id");
+            userAgent = typeBuilder.declareStringField("User-Agent");
+            authorization = typeBuilder.declareStringField("Authorization");
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static class ItemUrl {
+        public static final GlobType TYPE;
+        public static final StringField id;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("ItemUrl");
+            id = typeBuilder.declareStringField("id");
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static class Item {
+        public static final GlobType TYPE;
+        public static final LongField id;
+        public static final StringField name;
+        public static final DoubleField price;
+        public static final StringArrayField tags;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Item");
+            id = typeBuilder.declareLongField("id");
+            name = typeBuilder.declareStringField("name");
+            price = typeBuilder.declareDoubleField("price");
+            tags = typeBuilder.declareStringArrayField("tags");
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static class Page {
+        public static final GlobType TYPE;
+        public static final IntegerField total;
+        public static final GlobArrayField items;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Page");
+            total = typeBuilder.declareIntegerField("total");
+            items = typeBuilder.declareGlobArrayField("items", Item.TYPE);
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static Glob page(int size) {
+        Glob[] items = new Glob[size];
+        for (int i = 0; i < size; i++) {
+            items[i] = Item.TYPE.instantiate()
+                    .set(Item.id, i)
+                    .set(Item.name, "item " + i)
+                    .set(Item.price, i * 1.5)
+                    .set(Item.tags, new String[]{"a", "b", "c"});
+        }
+        return Page.TYPE.instantiate()
+                .set(Page.total, size)
+                .set(Page.items, items);
+    }
+}
@@ -0,0 +1,55 @@
+package org.globsframework.http;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Routing of a request (path lookup and query parsing) depending on the number of registered routes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CreateHandlerBenchmark {
+
+    @Param({"10", "100", "1000"})
+    public int routes;
+
+    private RequestDispatcher dispatcher;
+    private String firstPath;
+    private String lastPath;
+    private String unknownPath;
+    private final UrlPath urlPath = new UrlPath();
+
+    @Setup
+    public void setup() {
+        HttpServerRegister register = new HttpServerRegister("benchmark");
+        dispatcher = new RequestDispatcher("benchmark");
+        for (int i = 0; i < routes; i++) {
+            HttpServerRegister.Verb verb = register.register("/api/v1/resource" + i + "/items", null);
+            verb.get(BenchmarkTypes.Query.TYPE, (body, url, queryParameters) -> CompletableFuture.completedFuture(null));
+            GlobHttpRequestHandlerBuilder builder = new GlobHttpRequestHandlerBuilder("benchmark", verb.complete());
+            dispatcher.register(builder.createRegExp(), builder);
+        }
+        firstPath = "/api/v1/resource0/items?name=test&count=10";
+        lastPath = "/api/v1/resource" + (routes - 1) + "/items?name=test&count=10";
+        unknownPath = "/api/v1/unknown/items";
+    }
+
+    @Benchmark
+    public Object first() {
+        return dispatcher.createHandler(urlPath.reset(firstPath), "GET", false);
+    }
+
+    @Benchmark
+    public Object last() {
+        return dispatcher.createHandler(urlPath.reset(lastPath), "GET", false);
+    }
+
+    @Benchmark
+    public Object notFound() {
+        return dispatcher.createHandler(urlPath.reset(unknownPath), "GET", false);
+    }
+}
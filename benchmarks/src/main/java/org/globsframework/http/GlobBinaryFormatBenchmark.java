@@ -0,0 +1,112 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.core.metamodel.annotations.Target;
+import org.globsframework.core.metamodel.fields.*;
+import org.globsframework.core.model.Glob;
+import org.globsframework.json.GSonUtils;
+import org.globsframework.serialisation.model.FieldNumber_;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Encode and decode time of a list response in json and in the glob binary format
+// (the sizes are printed at the setup).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GlobBinaryFormatBenchmark {
+
+    @Param({"10", "1000"})
+    public int items;
+
+    private Glob list;
+    private byte[] json;
+    private byte[] bin;
+
+    @Setup
+    public void setup() throws IOException {
+        Glob[] values = new Glob[items];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = Item.TYPE.instantiate()
+                    .set(Item.id, i)
+                    .set(Item.name, "item number " + i)
+                    .set(Item.price, i * 1.5)
+                    .set(Item.tags, new String[]{"tag" + (i % 10), "other"});
+        }
+        list = ItemList.TYPE.instantiate().set(ItemList.items, values);
+        json = encodeJson();
+        bin = encodeBinary();
+        System.out.printf("%njson : %d bytes, bin : %d bytes%n", json.length, bin.length);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(outputStream, UTF_8);
+        GSonUtils.encode(writer, list, false);
+        writer.close();
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Glob decodeJson() {
+        return GSonUtils.decode(new InputStreamReader(new ByteArrayInputStream(json), UTF_8), ItemList.TYPE);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GlobBinaryFormat.write(list, outputStream);
+        return outputStream.toByteArray();
+    }
+
+    @Benchmark
+    public Glob decodeBinary() {
+        return GlobBinaryFormat.read(new ByteArrayInputStream(bin), ItemList.TYPE);
+    }
+
+    public static class ItemList {
+        public static GlobType TYPE;
+
+        @FieldNumber_(1)
+        @Target(Item.class)
+        public static GlobArrayField items;
+
+        static {
+            GlobTypeLoaderFactory.create(ItemList.class).load();
+        }
+    }
+
+    public static class Item {
+        public static GlobType TYPE;
+
+        @FieldNumber_(1)
+        public static IntegerField id;
+
+        @FieldNumber_(2)
+        public static StringField name;
+
+        @FieldNumber_(3)
+        public static DoubleField price;
+
+        @FieldNumber_(4)
+        public static StringArrayField tags;
+
+        static {
+            GlobTypeLoaderFactory.create(Item.class).load();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.globsframework.http;
+
+import org.globsframework.core.model.Glob;
+import org.globsframework.http.streams.MultiBufferOutputStream;
+import org.globsframework.http.streams.MultiByteArrayInputStream;
+import org.globsframework.json.GSonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// Json encoding of a response into pooled buffers and decoding of a request body, as done by the request handler.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonBenchmark {
+
+    @Param({"1", "100", "10000"})
+    public int items;
+
+    private Glob page;
+    private byte[] json;
+
+    @Setup
+    public void setup() {
+        page = BenchmarkTypes.page(items);
+        json = GSonUtils.encode(page, false).getBytes(UTF_8);
+    }
+
+    @Benchmark
+    public long encode() throws IOException {
+        MultiBufferOutputStream out = new MultiBufferOutputStream();
+        OutputStreamWriter writer = new OutputStreamWriter(out, UTF_8);
+        GSonUtils.encode(writer, page, false);
+        writer.flush();
+        long size = out.size();
+        out.release();
+        return size;
+    }
+
+    @Benchmark
+    public Glob decode() {
+        MultiByteArrayInputStream in = new MultiByteArrayInputStream();
+        in.addBuffer(ByteBuffer.wrap(json));
+        return GSonUtils.decode(new InputStreamReader(in, UTF_8), BenchmarkTypes.Page.TYPE);
+    }
+}
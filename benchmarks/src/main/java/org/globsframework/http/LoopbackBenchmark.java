@@ -0,0 +1,85 @@
+package org.globsframework.http;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.classic.methods.HttpPost;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.http.io.entity.StringEntity;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.globsframework.core.model.Glob;
+import org.globsframework.json.GSonUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Round trip through an HttpServerRegister server on the loopback interface.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(16)
+public class LoopbackBenchmark {
+
+    @Param({"1", "100"})
+    public int items;
+
+    private HttpServerRegister.Server server;
+    private CloseableHttpClient client;
+    private String getUrl;
+    private String postUrl;
+    private String body;
+
+    @Setup
+    public void setup() {
+        Glob page = BenchmarkTypes.page(items);
+        HttpServerRegister httpServerRegister = new HttpServerRegister("benchmark");
+        httpServerRegister.register("/page", null)
+                .get(BenchmarkTypes.Query.TYPE, (body, url, queryParameters) -> CompletableFuture.completedFuture(page));
+        httpServerRegister.register("/echo", null)
+                .post(BenchmarkTypes.Page.TYPE, null, (body, url, queryParameters) -> CompletableFuture.completedFuture(body));
+        server = httpServerRegister.startAndWaitForStartup(AsyncServerBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom().setSoReuseAddress(true).setTcpNoDelay(true).build()), 0);
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(64)
+                        .setMaxConnPerRoute(64)
+                        .build())
+                .build();
+        getUrl = "http://localhost:" + server.getPort() + "/page?name=test&count=10";
+        postUrl = "http://localhost:" + server.getPort() + "/echo";
+        body = GSonUtils.encode(page, false);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.getServer().close(CloseMode.GRACEFUL);
+    }
+
+    @Benchmark
+    public int get() throws IOException {
+        return client.execute(new HttpGet(getUrl), response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+
+    @Benchmark
+    public int post() throws IOException {
+        HttpPost post = new HttpPost(postUrl);
+        post.setEntity(new StringEntity(body, ContentType.APPLICATION_JSON));
+        return client.execute(post, response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+}
@@ -0,0 +1,44 @@
+package org.globsframework.http;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+// Lookup cost of RequestDispatcher.find by number of registered urls : the time per lookup should stay
+// nearly constant from 10 to several thousands urls.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestDispatcherBenchmark {
+
+    @Param({"10", "100", "1000", "5000", "10000"})
+    public int routes;
+
+    private RequestDispatcher dispatcher;
+    private final UrlPath[] paths = new UrlPath[1024];
+    private int index;
+
+    @Setup
+    public void setup() {
+        dispatcher = new RequestDispatcher("benchmark");
+        for (int i = 0; i < routes; i++) {
+            DefaultHttpOperation operation = new DefaultHttpOperation(HttpOp.get, null, null,
+                    (body, pathParameters, queryParameters, header) -> CompletableFuture.completedFuture(null));
+            GlobHttpRequestHandlerBuilder builder = new GlobHttpRequestHandlerBuilder("benchmark",
+                    new DefaultHttpReceiver("/service" + i + "/item/{id}/detail", BenchmarkTypes.ItemUrl.TYPE, operation));
+            dispatcher.register(builder.createRegExp(), builder);
+        }
+        for (int i = 0; i < paths.length; i++) {
+            paths[i] = UrlPath.parse("/service" + (i * 7919 % routes) + "/item/" + i + "/detail");
+        }
+    }
+
+    @Benchmark
+    public Object find() {
+        return dispatcher.find(paths[index++ & (paths.length - 1)]);
+    }
+}
@@ -0,0 +1,97 @@
+package org.globsframework.http;
+
+import org.apache.hc.client5.http.classic.methods.HttpGet;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http.io.entity.EntityUtils;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.globsframework.core.model.Glob;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+// Throughput of a treatment doing a blocking call (10 ms) with many clients :
+// - future : CompletableFuture treatment, the blocking call is done on a pool of 64 threads.
+// - blocking : blocking treatment called on a virtual thread (on the bounded pool of platform threads before java 21).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@Threads(500)
+public class VirtualThreadBenchmark {
+    private static final int BLOCKING_MS = 10;
+
+    private ExecutorService pool;
+    private HttpServerRegister.Server server;
+    private CloseableHttpClient client;
+    private String futureUrl;
+    private String blockingUrl;
+
+    @Setup
+    public void setup() {
+        Glob response = BenchmarkTypes.page(1);
+        pool = Executors.newFixedThreadPool(64);
+        HttpServerRegister httpServerRegister = new HttpServerRegister("benchmark");
+        httpServerRegister.register("/future", null)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.supplyAsync(() -> {
+                    sleep();
+                    return response;
+                }, pool));
+        httpServerRegister.register("/blocking", null)
+                .getBlocking(null, null, (body, url, queryParameters, header) -> {
+                    sleep();
+                    return response;
+                });
+        server = httpServerRegister.startAndWaitForStartup(AsyncServerBootstrap.bootstrap()
+                .setIOReactorConfig(IOReactorConfig.custom().setSoReuseAddress(true).setTcpNoDelay(true).build()), 0);
+        client = HttpClients.custom()
+                .setConnectionManager(PoolingHttpClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(500)
+                        .setMaxConnPerRoute(500)
+                        .build())
+                .build();
+        futureUrl = "http://localhost:" + server.getPort() + "/future";
+        blockingUrl = "http://localhost:" + server.getPort() + "/blocking";
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        server.getServer().close(CloseMode.GRACEFUL);
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int future() throws IOException {
+        return get(futureUrl);
+    }
+
+    @Benchmark
+    public int blocking() throws IOException {
+        return get(blockingUrl);
+    }
+
+    private int get(String url) throws IOException {
+        return client.execute(new HttpGet(url), response -> {
+            EntityUtils.consume(response.getEntity());
+            return response.getCode();
+        });
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(BLOCKING_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package org.globsframework.http.load;
+
+import org.apache.hc.client5.http.async.methods.SimpleHttpRequest;
+import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
+import org.apache.hc.client5.http.async.methods.SimpleRequestBuilder;
+import org.apache.hc.client5.http.impl.async.CloseableHttpAsyncClient;
+import org.apache.hc.client5.http.impl.async.HttpAsyncClients;
+import org.apache.hc.client5.http.impl.nio.PoolingAsyncClientConnectionManagerBuilder;
+import org.apache.hc.core5.concurrent.FutureCallback;
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
+import org.apache.hc.core5.http2.impl.nio.bootstrap.H2ServerBootstrap;
+import org.apache.hc.core5.io.CloseMode;
+import org.apache.hc.core5.reactor.IOReactorConfig;
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeBuilder;
+import org.globsframework.core.metamodel.GlobTypeBuilderFactory;
+import org.globsframework.core.metamodel.fields.IntegerField;
+import org.globsframework.core.metamodel.fields.StringField;
+import org.globsframework.core.model.Glob;
+import org.globsframework.http.HttpServerRegister;
+import org.globsframework.json.GSonUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ Load test of an HttpServerRegister server started on an ephemeral port, driven by the async http client.
+   --protocol=http1|h2     (http1)
+   --concurrency=64        requests in flight (connections for http1)
+   --rate=0                requests/s sent at a constant rate (open loop) ; 0 : each request is sent when one completes (closed loop)
+   --warmup=10             seconds
+   --duration=30           seconds
+   --mix=get:80,post:20    weight of each operation
+   --body-sizes=128,4096   size of the json post body / get response, chosen randomly for each request
+ Latencies are given as measured (service) and corrected for coordinated omission : from the time the request
+ should have been sent (open loop) or with the expected interval of the warmup (closed loop).
+ */
+public class LoadGenerator {
+    private final Options options;
+    private final Map<Integer, Glob> payloads = new HashMap<>();
+    private final Map<Integer, String> jsonPayloads = new HashMap<>();
+
+    public LoadGenerator(Options options) {
+        this.options = options;
+        for (int size : options.bodySizes) {
+            Glob payload = Payload.TYPE.instantiate().set(Payload.data, "x".repeat(size));
+            payloads.put(size, payload);
+            jsonPayloads.put(size, GSonUtils.encode(payload, false));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        new LoadGenerator(options).run().print(options);
+    }
+
+    public Report run() throws Exception {
+        HttpServerRegister.Server server = startServer();
+        try (CloseableHttpAsyncClient client = createClient()) {
+            client.start();
+            String url = "http://localhost:" + server.getPort();
+            Report warmup = run(client, url, options.warmupSeconds, 0);
+            long expectedInterval = options.rate > 0 ? 0 : warmup.getMeanServiceNanos();
+            return run(client, url, options.durationSeconds, expectedInterval);
+        } finally {
+            server.getServer().close(CloseMode.GRACEFUL);
+        }
+    }
+
+    private HttpServerRegister.Server startServer() {
+        HttpServerRegister httpServerRegister = new HttpServerRegister("load-generator");
+        httpServerRegister.register("/get", null)
+                .get(Size.TYPE, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(payloads.get(queryParameters.get(Size.size))));
+        httpServerRegister.register("/post", null)
+                .post(Payload.TYPE, null, (body, url, queryParameters) -> CompletableFuture.completedFuture(body));
+        IOReactorConfig config = IOReactorConfig.custom().setSoReuseAddress(true).setTcpNoDelay(true).build();
+        if (options.http2) {
+            return httpServerRegister.startAndWaitForStartup(H2ServerBootstrap.bootstrap().setIOReactorConfig(config), 0);
+        }
+        return httpServerRegister.startAndWaitForStartup(AsyncServerBootstrap.bootstrap().setIOReactorConfig(config), 0);
+    }
+
+    private CloseableHttpAsyncClient createClient() {
+        IOReactorConfig config = IOReactorConfig.custom().setTcpNoDelay(true).build();
+        if (options.http2) {
+            // one multiplexed connection
+            return HttpAsyncClients.customHttp2()
+                    .setIOReactorConfig(config)
+                    .build();
+        }
+        return HttpAsyncClients.custom()
+                .setIOReactorConfig(config)
+                .setConnectionManager(PoolingAsyncClientConnectionManagerBuilder.create()
+                        .setMaxConnTotal(options.concurrency)
+                        .setMaxConnPerRoute(options.concurrency)
+                        .build())
+                .build();
+    }
+
+    private Report run(CloseableHttpAsyncClient client, String url, int seconds, long expectedInterval) throws InterruptedException {
+        Report report = new Report(options.mix.keySet());
+        Semaphore inFlight = new Semaphore(options.concurrency);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        if (options.rate > 0) {
+            long period = TimeUnit.SECONDS.toNanos(1) / options.rate;
+            long intended = start;
+            while (intended < end) {
+                long wait = intended - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                inFlight.acquire(); // the waiting time is part of the corrected latency
+                send(client, url, intended, report, inFlight, 0);
+                intended += period;
+            }
+        } else {
+            while (System.nanoTime() < end) {
+                inFlight.acquire();
+                send(client, url, System.nanoTime(), report, inFlight, expectedInterval);
+            }
+        }
+        inFlight.acquire(options.concurrency);
+        report.durationNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private void send(CloseableHttpAsyncClient client, String url, long intended, Report report,
+                      Semaphore inFlight, long expectedInterval) {
+        String operation = pickOperation();
+        int size = options.bodySizes[ThreadLocalRandom.current().nextInt(options.bodySizes.length)];
+        SimpleHttpRequest request = operation.equals("post")
+                ? SimpleRequestBuilder.post(url + "/post").setBody(jsonPayloads.get(size), ContentType.APPLICATION_JSON).build()
+                : SimpleRequestBuilder.get(url + "/get?size=" + size).build();
+        long sent = System.nanoTime();
+        client.execute(request, new FutureCallback<>() {
+            public void completed(SimpleHttpResponse response) {
+                end(response.getCode() / 100 != 2);
+            }
+
+            public void failed(Exception ex) {
+                end(true);
+            }
+
+            public void cancelled() {
+                end(true);
+            }
+
+            private void end(boolean error) {
+                long now = System.nanoTime();
+                report.record(operation, now - sent, now - intended, expectedInterval, error);
+                inFlight.release();
+            }
+        });
+    }
+
+    private String pickOperation() {
+        int value = ThreadLocalRandom.current().nextInt(options.totalWeight);
+        for (Map.Entry<String, Integer> entry : options.mix.entrySet()) {
+            value -= entry.getValue();
+            if (value < 0) {
+                return entry.getKey();
+            }
+        }
+        throw new IllegalStateException("empty mix");
+    }
+
+    public static class Report {
+        final LatencyHistogram service = new LatencyHistogram();
+        final LatencyHistogram corrected = new LatencyHistogram();
+        final Map<String, LatencyHistogram> byOperation = new ConcurrentHashMap<>();
+        final LongAdder errors = new LongAdder();
+        final LongAdder serviceNanos = new LongAdder();
+        long durationNanos;
+
+        Report(Iterable<String> operations) {
+            operations.forEach(operation -> byOperation.put(operation, new LatencyHistogram()));
+        }
+
+        void record(String operation, long serviceLatency, long latency, long expectedInterval, boolean error) {
+            if (error) {
+                errors.increment();
+            }
+            service.record(serviceLatency);
+            serviceNanos.add(serviceLatency);
+            corrected.recordWithExpectedInterval(latency, expectedInterval);
+            byOperation.get(operation).recordWithExpectedInterval(latency, expectedInterval);
+        }
+
+        public long getRequests() {
+            return service.getCount();
+        }
+
+        public double getThroughput() {
+            return service.getCount() / (durationNanos / 1e9);
+        }
+
+        public long getErrors() {
+            return errors.sum();
+        }
+
+        public long getMeanServiceNanos() {
+            long count = service.getCount();
+            return count == 0 ? 0 : serviceNanos.sum() / count;
+        }
+
+        public LatencyHistogram getService() {
+            return service;
+        }
+
+        public LatencyHistogram getCorrected() {
+            return corrected;
+        }
+
+        void print(Options options) {
+            System.out.printf("protocol %s, concurrency %d, %s, mix %s, body sizes %s%n",
+                    options.http2 ? "h2" : "http1", options.concurrency,
+                    options.rate > 0 ? "rate " + options.rate + " req/s" : "closed loop",
+                    options.mix, Arrays.toString(options.bodySizes));
+            System.out.printf("%d requests in %.1f s : %.1f req/s, %d errors%n",
+                    getRequests(), durationNanos / 1e9, getThroughput(), getErrors());
+            System.out.printf("%-12s %10s %10s %10s %10s%n", "latency (ms)", "p50", "p99", "p999", "max");
+            print("service", service);
+            print("corrected", corrected);
+            byOperation.forEach(Report::print);
+        }
+
+        private static void print(String name, LatencyHistogram histogram) {
+            System.out.printf("  %-10s %10.3f %10.3f %10.3f %10.3f%n", name,
+                    histogram.percentile(50) / 1e6, histogram.percentile(99) / 1e6,
+                    histogram.percentile(99.9) / 1e6, histogram.getMax() / 1e6);
+        }
+    }
+
+    public static class Options {
+        boolean http2;
+        int concurrency = 64;
+        int rate;
+        int warmupSeconds = 10;
+        int durationSeconds = 30;
+        Map<String, Integer> mix = new LinkedHashMap<>(Map.of("get", 100));
+        int totalWeight = 100;
+        int[] bodySizes = {128, 4096};
+
+        public static Options parse(String... args) {
+            Options options = new Options();
+            for (String arg : args) {
+                int equal = arg.indexOf('=');
+                if (!arg.startsWith("--") || equal < 0) {
+                    throw new IllegalArgumentException("Expecting --name=value : " + arg);
+                }
+                String value = arg.substring(equal + 1);
+                switch (arg.substring(2, equal)) {
+                    case "protocol" -> options.http2 = switch (value) {
+                        case "http1" -> false;
+                        case "h2" -> true;
+                        default -> throw new IllegalArgumentException("Unknown protocol " + value);
+                    };
+                    case "concurrency" -> options.concurrency = Integer.parseInt(value);
+                    case "rate" -> options.rate = Integer.parseInt(value);
+                    case "warmup" -> options.warmupSeconds = Integer.parseInt(value);
+                    case "duration" -> options.durationSeconds = Integer.parseInt(value);
+                    case "mix" -> options.withMix(value);
+                    case "body-sizes" -> options.bodySizes = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    default -> throw new IllegalArgumentException("Unknown option " + arg);
+                }
+            }
+            return options;
+        }
+
+        private void withMix(String value) {
+            mix.clear();
+            totalWeight = 0;
+            for (String operation : value.split(",")) {
+                String[] nameAndWeight = operation.split(":");
+                String name = nameAndWeight[0];
+                if (!name.equals("get") && !name.equals("post")) {
+                    throw new IllegalArgumentException("Unknown operation " + name + " (get or post)");
+                }
+                int weight = nameAndWeight.length > 1 ? Integer.parseInt(nameAndWeight[1]) : 1;
+                mix.put(name, weight);
+                totalWeight += weight;
+            }
+        }
+    }
+
+    public static class Payload {
+        public static final GlobType TYPE;
+        public static final StringField data;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Payload");
+            data = typeBuilder.declareStringField("data");
+            TYPE = typeBuilder.get();
+        }
+    }
+
+    public static class Size {
+        public static final GlobType TYPE;
+        public static final IntegerField size;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("Size");
+            size = typeBuilder.declareIntegerField("size");
+            TYPE = typeBuilder.get();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package org.globsframework.http;
+
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.metrics.RouteMetrics;
+
+// The options of an operation set by the OperationInfo, shared by DefaultHttpOperation and DefaultHttpDataOperation.
+abstract class AbstractHttpOperation implements MutableHttpDataOperation {
+    private boolean streamedResponse = false;
+    private boolean incrementalBody = false;
+    private boolean compressionEnabled = true;
+    private int compressionMinSize = ResponseCompression.DEFAULT_MIN_SIZE;
+    private long maxDecompressedBodySize = RequestBodyDecoding.DEFAULT_MAX_DECOMPRESSED_SIZE;
+    private boolean eTag = false;
+    private ETagVersionProvider eTagVersionProvider;
+    private ResponseCache responseCache;
+    private SingleFlight singleFlight;
+    private RouteMetrics metrics;
+    private AccessLog accessLog;
+    private RateLimiter rateLimiter;
+    private ConcurrencyLimiter concurrencyLimiter;
+    private long timeoutNanos;
+    private String timeoutHeader;
+
+    public void withStreamedResponse(boolean streamedResponse) {
+        this.streamedResponse = streamedResponse;
+    }
+
+    public boolean isStreamedResponse() {
+        return streamedResponse;
+    }
+
+    public void withIncrementalBody(boolean incrementalBody) {
+        this.incrementalBody = incrementalBody;
+    }
+
+    public boolean isIncrementalBody() {
+        return incrementalBody;
+    }
+
+    public void withCompression(boolean enabled, int minSize) {
+        this.compressionEnabled = enabled;
+        this.compressionMinSize = minSize;
+    }
+
+    public boolean isCompressionEnabled() {
+        return compressionEnabled;
+    }
+
+    public int getCompressionMinSize() {
+        return compressionMinSize;
+    }
+
+    public void withMaxDecompressedBodySize(long maxSize) {
+        this.maxDecompressedBodySize = maxSize;
+    }
+
+    public long getMaxDecompressedBodySize() {
+        return maxDecompressedBodySize;
+    }
+
+    public void withETag(ETagVersionProvider versionProvider) {
+        this.eTag = true;
+        this.eTagVersionProvider = versionProvider;
+    }
+
+    public boolean hasETag() {
+        return eTag;
+    }
+
+    public ETagVersionProvider getETagVersionProvider() {
+        return eTagVersionProvider;
+    }
+
+    public void withResponseCache(ResponseCache responseCache) {
+        this.responseCache = responseCache;
+    }
+
+    public ResponseCache getResponseCache() {
+        return responseCache;
+    }
+
+    public void withSingleFlight(SingleFlight singleFlight) {
+        this.singleFlight = singleFlight;
+    }
+
+    public SingleFlight getSingleFlight() {
+        return singleFlight;
+    }
+
+    public void withMetrics(RouteMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    public RouteMetrics getMetrics() {
+        return metrics;
+    }
+
+    public void withAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    public AccessLog getAccessLog() {
+        return accessLog;
+    }
+
+    public void withRateLimiter(RateLimiter rateLimiter) {
+        this.rateLimiter = rateLimiter;
+    }
+
+    public RateLimiter getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public void withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+        this.concurrencyLimiter = concurrencyLimiter;
+    }
+
+    public ConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+
+    public void withTimeout(long timeoutNanos) {
+        this.timeoutNanos = timeoutNanos;
+    }
+
+    public long getTimeoutNanos() {
+        return timeoutNanos;
+    }
+
+    public void withTimeoutHeader(String timeoutHeader) {
+        this.timeoutHeader = timeoutHeader;
+    }
+
+    public String getTimeoutHeader() {
+        return timeoutHeader;
+    }
+}
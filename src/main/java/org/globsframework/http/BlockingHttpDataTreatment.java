@@ -0,0 +1,13 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.annotations.ArgName;
+import org.globsframework.core.model.Glob;
+
+// Blocking version of HttpDataTreatmentWithHeader : the body stream can be read with blocking calls.
+public interface BlockingHttpDataTreatment {
+
+    HttpOutputData consume(HttpInputData body,
+                           @ArgName("url") Glob url,
+                           @ArgName("queryParameters") Glob queryParameters,
+                           @ArgName("headers") Glob headerType) throws Exception;
+}
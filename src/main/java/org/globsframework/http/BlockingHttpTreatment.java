@@ -0,0 +1,13 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.annotations.ArgName;
+import org.globsframework.core.model.Glob;
+
+// Treatment returning its response directly : it is called on a virtual thread (or a worker thread) and can block.
+public interface BlockingHttpTreatment {
+
+    Glob consume(@ArgName("body") Glob body,
+                 @ArgName("url") Glob url,
+                 @ArgName("queryParameters") Glob queryParameters,
+                 @ArgName("headers") Glob headerType) throws Exception;
+}
@@ -0,0 +1,83 @@
+package org.globsframework.http;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Worker pool with a bounded queue for an operation (or a group of operations).
+// When the queue is full, the requests are rejected with a 503 before their body is read.
+public class BoundedExecutor implements Executor {
+    public static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+    private final String name;
+    private final ArrayBlockingQueue<Runnable> queue;
+    private final ThreadPoolExecutor executor;
+    private final int retryAfterSeconds;
+    private final LongAdder rejected = new LongAdder();
+
+    public BoundedExecutor(String name, int threads, int maxQueueDepth) {
+        this(name, threads, maxQueueDepth, DEFAULT_RETRY_AFTER_SECONDS);
+    }
+
+    public BoundedExecutor(String name, int threads, int maxQueueDepth, int retryAfterSeconds) {
+        this.name = name;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.queue = new ArrayBlockingQueue<>(maxQueueDepth);
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, queue, runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // throw a RejectedExecutionException if the queue is full.
+    public void execute(Runnable command) {
+        try {
+            executor.execute(command);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+    }
+
+    // check done when the request is received : true (and counted as rejected) if the queue is full.
+    boolean shed() {
+        if (queue.remainingCapacity() == 0) {
+            rejected.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public long getCompleted() {
+        return executor.getCompletedTaskCount();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
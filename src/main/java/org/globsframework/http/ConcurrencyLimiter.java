@@ -0,0 +1,160 @@
+package org.globsframework.http;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Adaptive limit of the calls of an operation in progress (AIMD) : the requests over the limit get a 503 at once.
+// While the latency stay under the threshold, the limit grows by 1 / limit by call (if it is used).
+// With maxLatency, a slower call reduce the limit by backoff (at most once per maxLatency period).
+// Else the latency is compared by window of calls (gradient) : when the average latency of a window is over
+// tolerance * the long term latency (average of the previous windows, smoothed) the limit is reduced by backoff,
+// at most once per window : the jitter of single calls does not reduce it.
+// The latency given by the server is counted from the time the request is queued for the executor.
+public class ConcurrencyLimiter {
+    public static final int DEFAULT_INITIAL_LIMIT = 20;
+    public static final int DEFAULT_MIN_LIMIT = 1;
+    public static final int DEFAULT_MAX_LIMIT = 1000;
+    private static final long SCALE = 1000; // limit stored with 3 decimals
+    static final int WINDOW_SAMPLES = 100;
+    private static final double LONG_TERM_SMOOTHING = 0.1; // weight of the last window in the long term latency
+    private final int minLimit;
+    private final int maxLimit;
+    private final AtomicLong scaledLimit;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong windowLatencySum = new AtomicLong();
+    private final AtomicInteger windowSamples = new AtomicInteger();
+    private final AtomicLong lastDecrease = new AtomicLong(System.nanoTime());
+    private final LongAdder rejected = new LongAdder();
+    private volatile long longTermLatency; // 0 before the end of the first window
+    private volatile double tolerance = 2.;
+    private volatile double backoff = 0.9;
+    private volatile long maxLatencyNanos;
+
+    public ConcurrencyLimiter() {
+        this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT);
+    }
+
+    public ConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        if (minLimit < 1 || initialLimit < minLimit || maxLimit < initialLimit) {
+            throw new IllegalArgumentException("Expecting 1 <= minLimit <= initialLimit <= maxLimit : " +
+                    minLimit + " " + initialLimit + " " + maxLimit);
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.scaledLimit = new AtomicLong(initialLimit * SCALE);
+    }
+
+    // a window of calls slower than tolerance * the long term latency reduce the limit (default 2).
+    public ConcurrencyLimiter withLatencyTolerance(double tolerance) {
+        this.tolerance = tolerance;
+        return this;
+    }
+
+    // a call slower than maxLatency reduce the limit (instead of the relative tolerance).
+    public ConcurrencyLimiter withMaxLatency(Duration maxLatency) {
+        this.maxLatencyNanos = maxLatency.toNanos();
+        return this;
+    }
+
+    public ConcurrencyLimiter withBackoff(double backoff) {
+        this.backoff = backoff;
+        return this;
+    }
+
+    // null if the limit is reached.
+    public Permit tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= getLimit()) {
+                rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(current + 1);
+            }
+        }
+    }
+
+    void onSample(long latencyNanos, int inFlightAtStart) {
+        long threshold;
+        if (maxLatencyNanos > 0) {
+            threshold = maxLatencyNanos;
+            if (latencyNanos > threshold) {
+                long now = System.nanoTime();
+                long last = lastDecrease.get();
+                if (now - last > threshold && lastDecrease.compareAndSet(last, now)) {
+                    decrease();
+                }
+                return;
+            }
+        } else {
+            windowLatencySum.addAndGet(latencyNanos);
+            if (windowSamples.incrementAndGet() % WINDOW_SAMPLES == 0) {
+                endWindow(windowLatencySum.getAndSet(0) / WINDOW_SAMPLES);
+            }
+            long longTerm = longTermLatency;
+            threshold = longTerm == 0 ? Long.MAX_VALUE : (long) (longTerm * tolerance);
+        }
+        if (latencyNanos <= threshold && inFlightAtStart * 2 >= getLimit()) {
+            // the limit is used : + 1 / limit by call.
+            scaledLimit.updateAndGet(limit -> Math.min(maxLimit * SCALE, limit + SCALE * SCALE / limit));
+        }
+    }
+
+    // called by a single thread by window.
+    private void endWindow(long windowLatency) {
+        long longTerm = longTermLatency;
+        if (longTerm == 0) {
+            longTermLatency = windowLatency;
+            return;
+        }
+        if (windowLatency > longTerm * tolerance) {
+            decrease();
+        }
+        // follow a lasting change of the latency (slowly if it come from the load).
+        longTermLatency = (long) (longTerm * (1 - LONG_TERM_SMOOTHING) + windowLatency * LONG_TERM_SMOOTHING);
+    }
+
+    private void decrease() {
+        scaledLimit.updateAndGet(limit -> Math.max(minLimit * SCALE, (long) (limit * backoff)));
+    }
+
+    public int getLimit() {
+        return (int) (scaledLimit.get() / SCALE);
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public class Permit {
+        private final int inFlightAtStart;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        Permit(int inFlightAtStart) {
+            this.inFlightAtStart = inFlightAtStart;
+        }
+
+        // the latency of the treatment is used to adapt the limit.
+        public void release(long latencyNanos) {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+                onSample(latencyNanos, inFlightAtStart);
+            }
+        }
+
+        // the treatment was not called (or did not complete) : no sample.
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package org.globsframework.http;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+// Deadline of the request being treated : set while the treatment is called (Deadline.current()),
+// it can be kept to give the remaining time to the downstream calls.
+public final class Deadline {
+    private static final ThreadLocal<Deadline> CURRENT = new ThreadLocal<>();
+    private final long expireAtNanos;
+
+    private Deadline(long expireAtNanos) {
+        this.expireAtNanos = expireAtNanos;
+    }
+
+    public static Deadline after(long timeoutNanos) {
+        return new Deadline(System.nanoTime() + timeoutNanos);
+    }
+
+    public static Deadline after(Duration timeout) {
+        return after(timeout.toNanos());
+    }
+
+    // null if the operation has no deadline or if not called from a treatment.
+    public static Deadline current() {
+        return CURRENT.get();
+    }
+
+    static Deadline enter(Deadline deadline) {
+        Deadline previous = CURRENT.get();
+        CURRENT.set(deadline);
+        return previous;
+    }
+
+    static void exit(Deadline previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    public long remainingNanos() {
+        return Math.max(0, expireAtNanos - System.nanoTime());
+    }
+
+    public long remainingMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(remainingNanos());
+    }
+
+    public Duration remaining() {
+        return Duration.ofNanos(remainingNanos());
+    }
+
+    public boolean isExpired() {
+        return expireAtNanos - System.nanoTime() <= 0;
+    }
+}
@@ -0,0 +1,149 @@
+package org.globsframework.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+// Hashed wheel timer shared by the request deadlines : scheduling and cancelling are O(1) and do not lock,
+// the expired tasks are run on the timer thread at the end of their tick (so they must be short).
+// The timeouts are only put in (or removed from) the wheel by the timer thread.
+public class DeadlineTimer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeadlineTimer.class);
+    public static final DeadlineTimer DEFAULT = new DeadlineTimer("globs-http-deadline", TimeUnit.MILLISECONDS.toNanos(10), 512);
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final ConcurrentLinkedQueue<Timeout> added = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Timeout> cancelled = new ConcurrentLinkedQueue<>();
+    private final long startNanos;
+    private long tick;
+
+    public DeadlineTimer(String name, long tickNanos, int wheelSize) {
+        this.tickNanos = tickNanos;
+        this.wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.startNanos = System.nanoTime();
+        Thread thread = new Thread(this::run, name);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public Timeout schedule(Runnable task, long delayNanos) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + delayNanos);
+        added.add(timeout);
+        return timeout;
+    }
+
+    private void run() {
+        while (true) {
+            long wait = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            while (wait > 0) {
+                LockSupport.parkNanos(wait);
+                wait = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            }
+            Timeout timeout;
+            while ((timeout = cancelled.poll()) != null) {
+                if (timeout.bucket != null) {
+                    timeout.bucket.remove(timeout);
+                }
+            }
+            while ((timeout = added.poll()) != null) {
+                if (timeout.state.get() == Timeout.CANCELLED) {
+                    continue;
+                }
+                long expireTick = Math.max((timeout.deadlineNanos - startNanos) / tickNanos, tick);
+                timeout.rounds = (expireTick - tick) / wheel.length;
+                wheel[(int) (expireTick % wheel.length)].add(timeout);
+            }
+            Bucket bucket = wheel[(int) (tick % wheel.length)];
+            timeout = bucket.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.rounds <= 0) {
+                    bucket.remove(timeout);
+                    timeout.expire();
+                } else {
+                    timeout.rounds--;
+                }
+                timeout = next;
+            }
+            tick++;
+        }
+    }
+
+    public class Timeout {
+        private static final int WAITING = 0;
+        private static final int CANCELLED = 1;
+        private static final int EXPIRED = 2;
+        private final Runnable task;
+        private final long deadlineNanos;
+        private final AtomicInteger state = new AtomicInteger(WAITING);
+        private long rounds;
+        private Bucket bucket;
+        private Timeout previous;
+        private Timeout next;
+
+        Timeout(Runnable task, long deadlineNanos) {
+            this.task = task;
+            this.deadlineNanos = deadlineNanos;
+        }
+
+        // false if the task was already run.
+        public boolean cancel() {
+            if (state.compareAndSet(WAITING, CANCELLED)) {
+                cancelled.add(this);
+                return true;
+            }
+            return state.get() == CANCELLED;
+        }
+
+        private void expire() {
+            if (state.compareAndSet(WAITING, EXPIRED)) {
+                try {
+                    task.run();
+                } catch (Throwable e) {
+                    LOGGER.error("Deadline task failed", e);
+                }
+            }
+        }
+    }
+
+    // intrusive double linked list : a cancelled timeout is removed at once.
+    private static class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            timeout.previous = tail;
+            timeout.next = null;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.previous == null) {
+                head = timeout.next;
+            } else {
+                timeout.previous.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.previous;
+            } else {
+                timeout.next.previous = timeout.previous;
+            }
+            timeout.bucket = null;
+            timeout.previous = null;
+            timeout.next = null;
+        }
+    }
+}
@@ -17,11 +17,18 @@ import org.globsframework.core.metamodel.fields.IntegerField;
 import org.globsframework.core.model.Glob;
 import org.globsframework.core.model.MutableGlob;
 import org.globsframework.core.utils.ReusableByteArrayOutputStream;
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.accesslog.AccessLogRecord;
+import org.globsframework.http.metrics.RouteMetrics;
 import org.globsframework.http.model.HttpBodyData;
 import org.globsframework.http.model.HttpGlobResponse;
 import org.globsframework.http.model.StatusCode;
+import org.globsframework.http.streams.BufferedsInputStream;
+import org.globsframework.http.streams.ByteBufferInputStream;
+import org.globsframework.http.streams.ByteBufferPool;
 import org.globsframework.http.streams.MultiBufferOutputStream;
 import org.globsframework.http.streams.MultiByteArrayInputStream;
+import org.globsframework.http.streams.WindowedOutputStream;
 import org.globsframework.json.GSonUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -29,8 +36,14 @@ import org.slf4j.LoggerFactory;
 import java.io.*;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
+import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
@@ -38,6 +51,15 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger("org.globsframework.http.DefaultGlobHttpRequestHandler");
     public static final byte[] EMPTY_BYTE_ARRAY = new byte[0];
+    private static final int REQUEST_WINDOW_SIZE = 64 * 1024;
+    private static final int STREAMED_BUFFER_SIZE = 16 * 1024;
+    private static final int STREAMED_MAX_PENDING_BUFFERS = 4;
+    private static final ContentType NDJSON = ContentType.create("application/x-ndjson", UTF_8);
+    private static final ContentType EVENT_STREAM = ContentType.create("text/event-stream", UTF_8);
+    // deadline states
+    private static final int RUNNING = 0;
+    private static final int RESPONDED = 1;
+    private static final int EXPIRED = 2;
     private final HttpOperation operation;
     private final Glob urlGlob;
     private final Glob paramType;
@@ -48,8 +70,36 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
     private final Glob header;
     private DataToSendProvider stream;
     private MultiByteArrayInputStream multiByteArrayInputStream;
+    private BufferedsInputStream incrementalBody;
+    private RequestBodyWindow requestBodyWindow;
     private long responseSize;
     private ByteBuffer currentResponseBuffer;
+    private WindowedOutputStream streamedResponse;
+    private ServerSentEvents.Connection events;
+    private Iterator<Glob> responseGlobs;
+    private MultiBufferOutputStream responseBuffers;
+    private String etag;
+    private String cacheKey;
+    private SingleFlight.Flight flight;
+    private volatile DataStreamChannel dataChannel;
+    private final RouteMetrics metrics;
+    private long startNanos;
+    private long treatmentStart;
+    private long queuedAt;
+    private long responseStart;
+    private long requestBytes;
+    private long responseBytes;
+    private boolean released;
+    private final AccessLog accessLog;
+    private final long[] phaseNanos;
+    private int status;
+    private Glob requestGlob;
+    private Glob responseGlob;
+    private ConcurrencyLimiter.Permit concurrencyPermit;
+    private Deadline deadline;
+    private AtomicInteger deadlineState;
+    private DeadlineTimer.Timeout deadlineTimeout;
+    private volatile CompletableFuture<HttpOutputData> treatment;
 
     public DefaultGlobHttpRequestHandler(HttpOperation operation, Glob urlGlob, Glob paramType, HttpRequest request,
                                          EntityDetails requestEntityDetails, ResponseChannel responseChannel, HttpContext context) {
@@ -60,11 +110,44 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
         this.requestEntityDetails = requestEntityDetails;
         this.responseChannel = responseChannel;
         this.context = context;
+        this.metrics = operation.getMetrics();
+        this.accessLog = operation.getAccessLog();
+        this.phaseNanos = accessLog != null ? new long[RouteMetrics.Phase.values().length] : null;
+        this.startNanos = System.nanoTime();
         GlobType headerType = operation.getHeaderType();
         this.header = headerType != null ? parseHeader(headerType, request.getHeaders()) : null;
+        long timeoutNanos = timeoutNanos(operation, request);
+        if (timeoutNanos > 0) {
+            this.deadline = Deadline.after(timeoutNanos);
+            this.deadlineState = new AtomicInteger(RUNNING);
+            this.deadlineTimeout = DeadlineTimer.DEFAULT.schedule(this::deadlineExpired, timeoutNanos);
+        }
+    }
+
+    // the timeout of the operation or the shorter one given by the client (in milliseconds).
+    static long timeoutNanos(HttpOperation operation, HttpRequest request) {
+        long timeoutNanos = operation.getTimeoutNanos();
+        String timeoutHeader = operation.getTimeoutHeader();
+        Header clientTimeout = timeoutHeader != null ? request.getFirstHeader(timeoutHeader) : null;
+        if (clientTimeout != null) {
+            try {
+                long clientTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Long.parseLong(clientTimeout.getValue().trim()));
+                if (clientTimeoutNanos > 0 && (timeoutNanos <= 0 || clientTimeoutNanos < timeoutNanos)) {
+                    timeoutNanos = clientTimeoutNanos;
+                }
+            } catch (NumberFormatException e) {
+                LOGGER.warn("Invalid {} header : {}", timeoutHeader, clientTimeout.getValue());
+            }
+        }
+        return timeoutNanos;
     }
 
-    private Glob parseHeader(GlobType headerType, Header[] allHeaders) {
+    DefaultGlobHttpRequestHandler withConcurrencyPermit(ConcurrencyLimiter.Permit permit) {
+        this.concurrencyPermit = permit;
+        return this;
+    }
+
+    static Glob parseHeader(GlobType headerType, Header[] allHeaders) {
         MutableGlob instance = headerType.instantiate();
         for (Header allHeader : allHeaders) {
             final String name = allHeader.getName();
@@ -76,21 +159,40 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
         return instance;
     }
 
+    public void requestRouted(long startNanos) {
+        this.startNanos = startNanos;
+        recordPhase(RouteMetrics.Phase.routing, System.nanoTime() - startNanos);
+    }
+
     public void callHandler() {
-        operation.getExecutor().execute(() -> {
+        ResponseCache cache = operation.getResponseCache();
+        if (cache != null && operation.verb() == HttpOp.get) {
+            cacheKey = ResponseCache.key(request, operation.getHeaderType(), operation.isCompressionEnabled());
+            ResponseCache.Cached cached = cache.get(cacheKey);
+            if (cached != null) {
+                // served from the exchange thread.
+                responseCached(cached);
+                return;
+            }
+        }
+        execute(() -> {
             callHandler(null);
         });
     }
 
     public void streamEnd(List<? extends Header> trailers) {
-        if (multiByteArrayInputStream != null) {
-            operation.getExecutor().execute(() -> {
-                if (operation.getBodyType() != null) {
-                    Glob glob = GSonUtils.decode(new InputStreamReader(multiByteArrayInputStream), operation.getBodyType());
-                    callHandler(HttpInputData.fromGlob(glob));
-                } else {
-                    callHandler(HttpInputData.fromStream(multiByteArrayInputStream, requestEntityDetails.getContentLength()));
+        if (incrementalBody != null) {
+            pushIncrementalBody(null, true);
+        } else if (multiByteArrayInputStream != null) {
+            execute(() -> {
+                HttpInputData inputData;
+                try {
+                    inputData = readBody(multiByteArrayInputStream);
+                } catch (Exception e) {
+                    manageException(RequestBodyDecoding.httpCause(e));
+                    return;
                 }
+                callHandler(inputData);
             });
         } else {
             // already called in consumeRequest
@@ -98,11 +200,24 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
     }
 
     public void consumeRequest(ByteBuffer src) {
-        if (multiByteArrayInputStream != null) {
+        requestBytes += src.remaining();
+        if (incrementalBody != null) {
+            pushIncrementalBody(src, false);
+        } else if (multiByteArrayInputStream != null) {
             multiByteArrayInputStream.addBuffer(src);
-        } else if (src.limit() - src.position() == requestEntityDetails.getContentLength()) {
+        } else if (src.limit() - src.position() == requestEntityDetails.getContentLength()
+                && RequestBodyDecoding.isIdentity(requestEntityDetails.getContentEncoding())) {
             HttpInputData inputData;
-            if (operation.getBodyType() != null) {
+            if (operation.getBodyType() != null && GlobBinaryFormat.isBinary(requestEntityDetails.getContentType())) {
+                Glob glob;
+                try {
+                    glob = readBinary(new ByteBufferInputStream(src), operation.getBodyType());
+                } catch (org.globsframework.http.HttpException e) {
+                    manageException(e);
+                    return;
+                }
+                inputData = HttpInputData.fromGlob(glob);
+            } else if (operation.getBodyType() != null) {
                 Glob glob = null;
                 try {
                     CharBuffer decode = UTF_8.decode(src);
@@ -129,86 +244,539 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
                 src.get(dst);
                 inputData = HttpInputData.fromStream(new ByteArrayInputStream(dst), len);
             }
-            operation.getExecutor().execute(() -> {
+            execute(() -> {
                 callHandler(inputData);
             });
+        } else if (operation.isIncrementalBody()) {
+            startIncrementalBody(src);
         } else {
             multiByteArrayInputStream = new MultiByteArrayInputStream();
             multiByteArrayInputStream.addBuffer(src);
         }
     }
 
+    // The body is split in many buffers : the json is decoded (or the stream given to the treatment) on a blocking
+    // thread while the next buffers are received. Each buffer is released once read and at most REQUEST_WINDOW_SIZE
+    // bytes are waiting for the reader. The reader wait for the io thread : it never run on the operation executor
+    // that can be the io thread. A decoded glob is given to the treatment on the operation executor, a stream is
+    // read by the treatment on the blocking thread.
+    private void startIncrementalBody(ByteBuffer src) {
+        RequestBodyWindow window = new RequestBodyWindow(REQUEST_WINDOW_SIZE);
+        BufferedsInputStream body = new BufferedsInputStream(window::read);
+        requestBodyWindow = window;
+        incrementalBody = body;
+        pushIncrementalBody(src, false);
+        boolean accepted = executeBlocking(() -> {
+            HttpInputData inputData;
+            try {
+                inputData = readBody(body);
+            } catch (Exception e) {
+                body.close();
+                manageException(RequestBodyDecoding.httpCause(e));
+                return;
+            }
+            if (inputData.isGlob()) {
+                execute(() -> callHandler(inputData));
+            } else {
+                callHandler(inputData);
+            }
+        });
+        if (!accepted) {
+            body.close();
+        }
+    }
+
+    // inflate the body if it is compressed then decode it (json body) or give it as a stream (binary body).
+    private HttpInputData readBody(InputStream raw) throws IOException {
+        InputStream body = RequestBodyDecoding.decode(raw, requestEntityDetails.getContentEncoding(),
+                operation.getMaxDecompressedBodySize());
+        if (operation.getBodyType() != null) {
+            if (GlobBinaryFormat.isBinary(requestEntityDetails.getContentType())) {
+                return HttpInputData.fromGlob(readBinary(body, operation.getBodyType()));
+            }
+            return HttpInputData.fromGlob(GSonUtils.decode(new InputStreamReader(body, UTF_8), operation.getBodyType()));
+        }
+        return HttpInputData.fromStream(body, body == raw ? requestEntityDetails.getContentLength() : -1);
+    }
+
+    // a body that can not be decoded is an error of the client.
+    private static Glob readBinary(InputStream body, GlobType type) {
+        try {
+            return GlobBinaryFormat.read(body, type);
+        } catch (RuntimeException e) {
+            throw new org.globsframework.http.HttpException(400, "Invalid binary body : " + e.getMessage());
+        }
+    }
+
+    private void pushIncrementalBody(ByteBuffer src, boolean last) {
+        try {
+            requestBodyWindow.received(src == null ? 0 : src.remaining());
+            incrementalBody.newBuffer(src, last);
+        } catch (IllegalStateException e) {
+            // reader already failed (and responded) : remaining data is dropped.
+            requestBodyWindow.release();
+        }
+    }
+
     private void callHandler(HttpInputData inputData) {
+        if (isExpired()) {
+            return;
+        }
         try {
-            operation.consume(inputData, urlGlob, paramType, header)
-                    .whenComplete((httpOutputData, throwable) -> {
-                        if (throwable != null) {
-                            if (throwable instanceof CompletionException) {
-                                manageException(throwable.getCause());
-                            } else {
-                                manageException(throwable);
-                            }
-                        } else if (httpOutputData != null) {
-                            if (httpOutputData.isGlob()) {
-                                Glob glob = httpOutputData.getGlob();
-                                if (glob == null) {
-                                    send204();
-                                    return;
-                                }
-                                if (glob.getType() == GlobHttpContent.TYPE) {
-                                    responseFromHttpContent(glob);
-                                    return;
-                                }
-                                if (glob.getType().hasAnnotation(HttpGlobResponse.UNIQUE_KEY)) {
-                                    responseCustomHttpContent(glob);
-                                    return;
-                                }
-                                MultiBufferOutputStream out = new MultiBufferOutputStream();
-                                OutputStreamWriter streamWriter = new OutputStreamWriter(out);
-                                GSonUtils.encode(streamWriter, httpOutputData.getGlob(), false);
-                                try {
-                                    streamWriter.close();
-                                } catch (IOException e) {
-                                    throw new RuntimeException(e);
-                                }
-                                List<ByteBuffer> data = out.data();
-                                stream = () -> data.isEmpty() ? null : data.remove(0);
-                                responseSize = out.size();
-                            } else {
-                                HttpOutputData.SizedStream data = httpOutputData.getStream();
-                                if (data == null || data.size() == 0L) {
-                                    send204();
-                                    return;
-                                }
-                                stream = new DataToSendProvider() {
-                                    byte[] buffer = new byte[8192]; // can be reused
-
-                                    public ByteBuffer nextBufferToSend() {
-                                        int read = 0;
-                                        try {
-                                            read = data.stream().read(buffer);
-                                        } catch (IOException e) {
-                                            return null;
-                                        }
-                                        if (read < 0) {
-                                            return null;
-                                        }
-                                        return ByteBuffer.wrap(buffer, 0, read);
-                                    }
-                                };
-                                responseSize = data.size();
-                            }
-                            sendHttpResponse(new BasicHttpResponse(200), new BasicEntityDetails(responseSize,
-                                    ContentType.APPLICATION_JSON));
-                        } else {
-                            send204();
-                        }
-                    });
+            if (isETagged()) {
+                ETagVersionProvider versionProvider = operation.getETagVersionProvider();
+                String version = versionProvider != null ? versionProvider.version(urlGlob, paramType, header) : null;
+                if (version != null) {
+                    etag = ETags.fromVersion(version);
+                    if (ETags.matches(request, etag)) {
+                        sendNotModified(etag);
+                        return;
+                    }
+                }
+            }
+            if (accessLog != null && accessLog.isBodyLogged() && inputData != null && inputData.isGlob()) {
+                requestGlob = inputData.asGlob();
+            }
+            treatmentStart = System.nanoTime();
+            SingleFlight singleFlight = operation.getSingleFlight();
+            if (singleFlight != null && inputData == null && operation.verb() == HttpOp.get) {
+                // the shared call is not cancelled by the deadline of this request.
+                flight = singleFlight.join(ResponseCache.key(request, operation.getHeaderType()), () -> consume(null));
+                flight.result().whenComplete(this::respond);
+            } else {
+                startTreatment(inputData);
+            }
         } catch (Exception ex) {
             manageException(ex);
         }
     }
 
+    private void startTreatment(HttpInputData inputData) throws Exception {
+        CompletableFuture<HttpOutputData> current = consume(inputData);
+        treatment = current;
+        if (isExpired()) {
+            // expired while consume was called : not seen by deadlineExpired.
+            current.cancel(true);
+        }
+        current.whenComplete(this::respond);
+    }
+
+    // the deadline is given to the treatment by Deadline.current().
+    private CompletableFuture<HttpOutputData> consume(HttpInputData inputData) throws Exception {
+        if (deadline == null) {
+            return operation.consume(inputData, urlGlob, paramType, header);
+        }
+        Deadline previous = Deadline.enter(deadline);
+        try {
+            return operation.consume(inputData, urlGlob, paramType, header);
+        } finally {
+            Deadline.exit(previous);
+        }
+    }
+
+    private boolean isExpired() {
+        return deadlineState != null && deadlineState.get() == EXPIRED;
+    }
+
+    // false if the 504 was already sent.
+    private boolean respondBeforeDeadline() {
+        return deadlineState == null || deadlineState.compareAndExchange(RUNNING, RESPONDED) != EXPIRED;
+    }
+
+    // called by the timer thread : the treatment is cancelled and a 504 sent if no response was sent.
+    private void deadlineExpired() {
+        if (!deadlineState.compareAndSet(RUNNING, EXPIRED)) {
+            return;
+        }
+        LOGGER.info("Deadline expired for {} {}", request.getMethod(), request.getPath());
+        CompletableFuture<HttpOutputData> current = treatment;
+        if (current != null) {
+            current.cancel(true);
+        }
+        stream = null;
+        doSendHttpResponse(new BasicHttpResponse(504), null);
+    }
+
+    private void respond(HttpOutputData httpOutputData, Throwable throwable) {
+        long now = System.nanoTime();
+        recordPhase(RouteMetrics.Phase.treatment, now - treatmentStart);
+        if (concurrencyPermit != null) {
+            // the time waiting for a thread of the executor is part of the latency.
+            concurrencyPermit.release(now - (queuedAt != 0 ? queuedAt : treatmentStart));
+        }
+        if (isExpired()) {
+            // a 504 was sent : the output is not read.
+            discard(httpOutputData);
+            return;
+        }
+        if (throwable != null) {
+            if (throwable instanceof CompletionException) {
+                manageException(throwable.getCause());
+            } else {
+                manageException(throwable);
+            }
+        } else if (httpOutputData != null) {
+            if (httpOutputData.isGlob()) {
+                Glob glob = httpOutputData.getGlob();
+                responseGlob = glob;
+                if (glob == null) {
+                    send204();
+                    return;
+                }
+                if (glob.getType() == GlobHttpContent.TYPE) {
+                    responseFromHttpContent(glob);
+                    return;
+                }
+                if (glob.getType().hasAnnotation(HttpGlobResponse.UNIQUE_KEY)) {
+                    responseCustomHttpContent(glob);
+                    return;
+                }
+                if (operation.isStreamedResponse()) {
+                    responseStreamedGlob(glob);
+                    return;
+                }
+                responseGlob(glob);
+                return;
+            } else if (httpOutputData instanceof ServerSentEvents.Connection connection) {
+                responseEvents(connection);
+                return;
+            } else {
+                if (flight != null && !flight.takeStream()) {
+                    // the stream is read once : this caller make its own call.
+                    flight = null;
+                    try {
+                        startTreatment(null);
+                    } catch (Exception e) {
+                        manageException(e);
+                    }
+                    return;
+                }
+                Iterator<Glob> globs = httpOutputData.getGlobs();
+                if (globs != null) {
+                    responseNdJson(globs);
+                    return;
+                }
+                HttpOutputData.SizedStream data = httpOutputData.getStream();
+                if (data == null || data.size() == 0L) {
+                    send204();
+                    return;
+                }
+                stream = new DataToSendProvider() {
+                    byte[] buffer = new byte[8192]; // can be reused
+
+                    public ByteBuffer nextBufferToSend() {
+                        int read = 0;
+                        try {
+                            read = data.stream().read(buffer);
+                        } catch (IOException e) {
+                            return null;
+                        }
+                        if (read < 0) {
+                            return null;
+                        }
+                        return ByteBuffer.wrap(buffer, 0, read);
+                    }
+                };
+                responseSize = data.size();
+            }
+            sendHttpResponse(new BasicHttpResponse(200), new BasicEntityDetails(responseSize,
+                    ContentType.APPLICATION_JSON));
+        } else {
+            send204();
+        }
+    }
+
+    // the glob is encoded in binary if accepted (json otherwise), compressed if negotiated, then sent from the buffers.
+    private void responseGlob(Glob glob) {
+        String representation = null;
+        if (flight != null) {
+            representation = ResponseCache.representation(request, operation.isCompressionEnabled());
+            ResponseCache.Cached shared = flight.getEncoded(representation);
+            if (shared != null) {
+                responseCached(shared);
+                return;
+            }
+        }
+        long encodingStart = System.nanoTime();
+        EncodedResponse encoded = encode(glob);
+        recordPhase(RouteMetrics.Phase.encoding, System.nanoTime() - encodingStart);
+        responseBuffers = encoded.data();
+        String responseETag = null;
+        if (isETagged()) {
+            responseETag = etag != null ? etag : ETags.hash(encoded.data().data());
+        }
+        if (cacheKey != null) {
+            operation.getResponseCache().store(cacheKey, encoded.data().data(), encoded.data().size(),
+                    encoded.contentType(), encoded.contentEncoding(), responseETag);
+        }
+        if (flight != null && flight.isShared()) {
+            flight.shareEncoded(representation, ResponseCache.Cached.copyOf(encoded.data().data(), encoded.data().size(),
+                    encoded.contentType(), encoded.contentEncoding(), responseETag));
+        }
+        if (responseETag != null && ETags.matches(request, responseETag)) {
+            sendNotModified(responseETag);
+            return;
+        }
+        Iterator<ByteBuffer> data = encoded.data().data().iterator();
+        stream = () -> data.hasNext() ? data.next() : null;
+        sendHttpResponse(okResponse(encoded.contentType(), encoded.contentEncoding(), responseETag), encoded.entityDetails());
+    }
+
+    private void responseCached(ResponseCache.Cached cached) {
+        if (cached.etag() != null && ETags.matches(request, cached.etag())) {
+            sendNotModified(cached.etag());
+            return;
+        }
+        var ref = new Object() {
+            ByteBuffer data = ByteBuffer.wrap(cached.data()).asReadOnlyBuffer();
+        };
+        stream = () -> {
+            try {
+                return ref.data;
+            } finally {
+                ref.data = null;
+            }
+        };
+        sendHttpResponse(okResponse(cached.contentType(), cached.contentEncoding(), cached.etag()), cached.entityDetails());
+    }
+
+    private BasicHttpResponse okResponse(ContentType contentType, String contentEncoding, String etag) {
+        BasicHttpResponse response = new BasicHttpResponse(200);
+        addVary(response, contentEncoding);
+        if (etag != null) {
+            response.addHeader(HttpHeaders.ETAG, etag);
+        }
+        return response;
+    }
+
+    private EncodedResponse encode(Glob glob) {
+        MultiBufferOutputStream out = null;
+        ContentType contentType = ContentType.APPLICATION_JSON;
+        if (GlobBinaryFormat.accept(request)) {
+            out = new MultiBufferOutputStream();
+            try {
+                GlobBinaryFormat.write(glob, out);
+                out.close();
+                contentType = GlobBinaryFormat.CONTENT_TYPE;
+            } catch (RuntimeException e) {
+                // type without field numbers : json is sent.
+                LOGGER.debug("Fail to encode " + glob.getType().getName() + " in binary", e);
+                out.release();
+                out = null;
+            }
+        }
+        if (out == null) {
+            out = new MultiBufferOutputStream();
+            OutputStreamWriter streamWriter = new OutputStreamWriter(out, UTF_8);
+            GSonUtils.encode(streamWriter, glob, false);
+            try {
+                streamWriter.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+        String encoding = compressionEncoding(out.size());
+        if (encoding != null) {
+            MultiBufferOutputStream compressed = new MultiBufferOutputStream();
+            try {
+                ResponseCompression.compress(out.data(), out.size(), encoding, compressed);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            } finally {
+                out.release();
+            }
+            out = compressed;
+        }
+        return new EncodedResponse(out, contentType, encoding);
+    }
+
+    record EncodedResponse(MultiBufferOutputStream data, ContentType contentType, String contentEncoding) {
+        EntityDetails entityDetails() {
+            return contentEncoding == null ? new BasicEntityDetails(data.size(), contentType) :
+                    new ResponseCompression.EncodedEntityDetails(data.size(), contentType, contentEncoding);
+        }
+    }
+
+    // The glob is encoded on a blocking thread in a bounded window of buffers while produceResponse send them
+    // (chunked) : the encoder wait for the io thread once the window is full.
+    private void responseStreamedGlob(Glob glob) {
+        WindowedOutputStream out = new WindowedOutputStream(ByteBufferPool.DEFAULT, STREAMED_BUFFER_SIZE,
+                STREAMED_MAX_PENDING_BUFFERS, this::requestOutput);
+        streamedResponse = out;
+        String encoding = compressionEncoding(Long.MAX_VALUE);
+        boolean accepted = executeBlocking(() -> {
+            try (Writer writer = new OutputStreamWriter(encoding != null ? ResponseCompression.wrap(out, encoding) : out, UTF_8)) {
+                GSonUtils.encode(writer, glob, false);
+            } catch (Exception e) {
+                LOGGER.error("Fail to encode streamed response", e);
+                out.abort();
+                requestOutput();
+            }
+        });
+        if (!accepted) {
+            return;
+        }
+        // the first buffers are sent once the response is : requestOutput does nothing before.
+        stream = out::poll;
+        if (encoding != null) {
+            sendHttpResponse(varyOnEncoding(new BasicHttpResponse(200)),
+                    new ResponseCompression.EncodedEntityDetails(-1, ContentType.APPLICATION_JSON, encoding));
+        } else {
+            sendHttpResponse(new BasicHttpResponse(200), new BasicEntityDetails(-1, ContentType.APPLICATION_JSON));
+        }
+    }
+
+    // The globs are encoded one by one on a blocking thread : the window of buffers stop the encoder (and the reading
+    // of the next globs) while produceResponse is late. The first line and the lines written while a publisher
+    // has nothing more to give are flushed at once.
+    private void responseNdJson(Iterator<Glob> globs) {
+        WindowedOutputStream out = new WindowedOutputStream(ByteBufferPool.DEFAULT, STREAMED_BUFFER_SIZE,
+                STREAMED_MAX_PENDING_BUFFERS, this::requestOutput);
+        streamedResponse = out;
+        responseGlobs = globs;
+        String encoding = compressionEncoding(Long.MAX_VALUE);
+        Runnable encoder = () -> {
+            try (Writer writer = new OutputStreamWriter(encoding != null ? ResponseCompression.wrap(out, encoding) : out, UTF_8)) {
+                boolean first = true;
+                while (globs.hasNext()) {
+                    GSonUtils.encode(writer, globs.next(), false);
+                    writer.write('\n');
+                    if (first || (globs instanceof PublisherIterator<Glob> publisher && !publisher.hasAvailable())) {
+                        writer.flush();
+                        first = false;
+                    }
+                }
+            } catch (Exception e) {
+                LOGGER.error("Fail to encode ndjson response", e);
+                out.abort();
+                requestOutput();
+            } finally {
+                close(globs);
+            }
+        };
+        if (!executeBlocking(encoder)) {
+            close(globs);
+            return;
+        }
+        stream = out::poll;
+        if (encoding != null) {
+            sendHttpResponse(varyOnEncoding(new BasicHttpResponse(200)),
+                    new ResponseCompression.EncodedEntityDetails(-1, NDJSON, encoding));
+        } else {
+            sendHttpResponse(new BasicHttpResponse(200), new BasicEntityDetails(-1, NDJSON));
+        }
+    }
+
+    // long-lived response : the frames are sent as they are queued by the connection, never compressed.
+    private void responseEvents(ServerSentEvents.Connection connection) {
+        Header lastEventId = request.getFirstHeader(ServerSentEvents.LAST_EVENT_ID);
+        try {
+            connection.open(lastEventId != null ? lastEventId.getValue() : null);
+        } catch (org.globsframework.http.HttpException e) {
+            manageException(e);
+            return;
+        }
+        events = connection;
+        connection.start(this::requestOutput);
+        stream = connection::poll;
+        BasicHttpResponse response = new BasicHttpResponse(200);
+        response.addHeader(HttpHeaders.CACHE_CONTROL, "no-cache");
+        sendHttpResponse(response, new BasicEntityDetails(-1, EVENT_STREAM));
+    }
+
+    private static void discard(HttpOutputData httpOutputData) {
+        if (httpOutputData == null || httpOutputData.isGlob()) {
+            return;
+        }
+        if (httpOutputData instanceof ServerSentEvents.Connection connection) {
+            connection.close();
+            return;
+        }
+        Iterator<Glob> globs = httpOutputData.getGlobs();
+        if (globs != null) {
+            close(globs);
+            return;
+        }
+        HttpOutputData.SizedStream data = httpOutputData.getStream();
+        if (data != null && data.stream() != null) {
+            try {
+                data.stream().close();
+            } catch (IOException e) {
+                LOGGER.error("Fail to close response stream", e);
+            }
+        }
+    }
+
+    private static void close(Iterator<Glob> globs) {
+        if (globs instanceof AutoCloseable closeable) {
+            try {
+                closeable.close();
+            } catch (Exception e) {
+                LOGGER.error("Fail to close globs", e);
+            }
+        }
+    }
+
+    // false if the executor reject the task (full queue) : a 503 is sent.
+    private boolean execute(Runnable task) {
+        try {
+            Executor executor = operation.getExecutor();
+            queuedAt = System.nanoTime();
+            if (metrics != null && executor != HttpOperation.DIRECT_EXECUTOR) {
+                executor.execute(() -> {
+                    recordPhase(RouteMetrics.Phase.queue, System.nanoTime() - queuedAt);
+                    task.run();
+                });
+            } else {
+                executor.execute(task);
+            }
+            return true;
+        } catch (RejectedExecutionException e) {
+            sendServiceUnavailable();
+            return false;
+        }
+    }
+
+    // for the tasks waiting for the io thread (body reader, streamed encoder) : the operation executor can run them
+    // on the io thread (Runnable::run).
+    private boolean executeBlocking(Runnable task) {
+        try {
+            VirtualThreads.executor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            sendServiceUnavailable();
+            return false;
+        }
+    }
+
+    // the negotiated encoding if the operation compress responses of this size.
+    private String compressionEncoding(long size) {
+        if (!operation.isCompressionEnabled() || size < operation.getCompressionMinSize()) {
+            return null;
+        }
+        return ResponseCompression.negotiate(request);
+    }
+
+    // json or binary depending on Accept, compressed or not depending on Accept-Encoding : also set on the 304.
+    private void addVary(BasicHttpResponse response, String contentEncoding) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (contentEncoding != null || operation.isCompressionEnabled()) {
+            varyOnEncoding(response);
+        }
+    }
+
+    private static BasicHttpResponse varyOnEncoding(BasicHttpResponse response) {
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        return response;
+    }
+
+    private void requestOutput() {
+        DataStreamChannel channel = dataChannel;
+        if (channel != null) {
+            channel.requestOutput();
+        }
+    }
+
     private void manageException(Throwable throwable) {
         if (throwable instanceof HttpExceptionWithContent) {
             sendStatus(((HttpExceptionWithContent) throwable).getCode(),
@@ -249,6 +817,15 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
 
     private void sendHttpResponse(BasicHttpResponse statusCode,
                                   EntityDetails responseEntityDetails) {
+        if (!respondBeforeDeadline()) {
+            return;
+        }
+        doSendHttpResponse(statusCode, responseEntityDetails);
+    }
+
+    private void doSendHttpResponse(BasicHttpResponse statusCode,
+                                    EntityDetails responseEntityDetails) {
+        responseStarted(statusCode.getCode());
         try {
             responseChannel.sendResponse(statusCode, responseEntityDetails, context);
         } catch (HttpException e) {
@@ -296,6 +873,10 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
                 }
 
                 statusCode = glob.get(statusField, strData == null ? 204 : 200);
+                if (!respondBeforeDeadline()) {
+                    return;
+                }
+                responseStarted(statusCode);
 
                 var ref = new Object() {
                     byte[] bytes = strData != null ? strData.getBytes(UTF_8) : null;
@@ -320,41 +901,91 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
         }
     }
 
+    private boolean isETagged() {
+        return operation.hasETag() && operation.verb() == HttpOp.get;
+    }
+
+    private void sendNotModified(String etag) {
+        BasicHttpResponse response = new BasicHttpResponse(304);
+        addVary(response, null);
+        response.addHeader(HttpHeaders.ETAG, etag);
+        stream = null;
+        sendHttpResponse(response, null);
+    }
+
+    private void sendServiceUnavailable() {
+        BasicHttpResponse response = new BasicHttpResponse(503);
+        int retryAfter = operation.getExecutor() instanceof BoundedExecutor executor ?
+                executor.getRetryAfterSeconds() : BoundedExecutor.DEFAULT_RETRY_AFTER_SECONDS;
+        response.addHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        stream = null;
+        sendHttpResponse(response, null);
+    }
+
     private void send204() {
         sendHttpResponse(new BasicHttpResponse(204), null);
     }
 
+    private void responseStarted(int status) {
+        this.status = status;
+        responseStart = System.nanoTime();
+        if (metrics != null) {
+            metrics.recordStatus(status);
+        }
+    }
+
+    private void recordPhase(RouteMetrics.Phase phase, long nanos) {
+        if (phaseNanos != null) {
+            phaseNanos[phase.ordinal()] += nanos;
+        }
+        if (metrics != null) {
+            metrics.recordPhase(phase, nanos);
+        }
+    }
+
     interface DataToSendProvider {
         ByteBuffer nextBufferToSend();
     }
 
     // synchronized because call at sendResponse but can also be called but listen port on io write allowed.
     public synchronized void produceResponse(DataStreamChannel channel) throws IOException {
-        if (currentResponseBuffer != null && currentResponseBuffer.hasRemaining()) {
-            channel.write(currentResponseBuffer);
-        } else {
-            if (stream != null) {
-                currentResponseBuffer = stream.nextBufferToSend();
-                if (currentResponseBuffer != null) {
-                    channel.write(currentResponseBuffer);
+        dataChannel = channel;
+        try {
+            while (stream != null) {
+                if (currentResponseBuffer == null || currentResponseBuffer == WindowedOutputStream.PENDING) {
+                    currentResponseBuffer = stream.nextBufferToSend();
+                    if (currentResponseBuffer == WindowedOutputStream.PENDING) {
+                        return; // the writer call requestOutput with the next buffer.
+                    }
+                    if (currentResponseBuffer == null || !currentResponseBuffer.hasRemaining()) {
+                        currentResponseBuffer = null;
+                        stream = null;
+                        channel.endStream(List.of());
+                        return;
+                    }
                 }
+                responseBytes += channel.write(currentResponseBuffer);
+                if (currentResponseBuffer.hasRemaining()) {
+                    return;
+                }
+                currentResponseBuffer = null;
             }
-        }
-        if ((currentResponseBuffer == null || !currentResponseBuffer.hasRemaining()) && stream != null) {
-            currentResponseBuffer = stream.nextBufferToSend();
-            if (currentResponseBuffer == null || !currentResponseBuffer.hasRemaining()) {
-                channel.endStream(List.of());
-            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
         }
     }
 
     @Override
-    public int availableInResponse() {
+    public synchronized int availableInResponse() {
         if (currentResponseBuffer != null && currentResponseBuffer.hasRemaining()) {
             return currentResponseBuffer.remaining();
         }
         if (stream != null) {
-            currentResponseBuffer = stream.nextBufferToSend();
+            try {
+                currentResponseBuffer = stream.nextBufferToSend();
+            } catch (UncheckedIOException e) {
+                return 1; // produceResponse will report the failure.
+            }
             if (currentResponseBuffer != null) {
                 return currentResponseBuffer.remaining();
             }
@@ -364,11 +995,62 @@ class DefaultGlobHttpRequestHandler implements GlobHttpRequestHandler {
 
     @Override
     public void releaseResources() {
+        if (!released) {
+            released = true;
+            long now = System.nanoTime();
+            if (responseStart != 0) {
+                recordPhase(RouteMetrics.Phase.write, now - responseStart);
+            }
+            recordPhase(RouteMetrics.Phase.total, now - startNanos);
+            if (metrics != null) {
+                metrics.recordSizes(requestBytes, responseBytes);
+            }
+            if (accessLog != null && accessLog.isSampled(status)) {
+                boolean withBody = accessLog.isBodyLogged() && accessLog.isBodySampled();
+                accessLog.log(new AccessLogRecord(System.currentTimeMillis(), request.getMethod(),
+                        metrics != null ? metrics.getRoute() : null, request.getPath(), status, requestBytes, responseBytes,
+                        phaseNanos, operation.hasSensitiveData(),
+                        withBody ? requestGlob : null, withBody ? responseGlob : null));
+            }
+        }
+        if (concurrencyPermit != null) {
+            concurrencyPermit.release(); // no-op if the treatment completed
+        }
+        if (deadlineTimeout != null) {
+            deadlineTimeout.cancel();
+        }
+        if (incrementalBody != null) {
+            incrementalBody.close();
+            requestBodyWindow.release();
+        }
+        if (streamedResponse != null) {
+            streamedResponse.release();
+        }
+        if (events != null) {
+            events.close();
+        }
+        if (responseGlobs != null) {
+            // the encoder can wait for a publisher that has nothing to give.
+            close(responseGlobs);
+        }
+        if (responseBuffers != null) {
+            responseBuffers.release();
+        }
     }
 
     @Override
     public void updateCapacityToReceiveData(CapacityChannel capacityChannel) {
-
+        RequestBodyWindow window = requestBodyWindow;
+        if (window != null) {
+            window.updateCapacity(capacityChannel);
+        } else {
+            // body fully buffered before the call.
+            try {
+                capacityChannel.update(REQUEST_WINDOW_SIZE);
+            } catch (IOException e) {
+                LOGGER.error("Fail to update request capacity", e);
+            }
+        }
     }
 
     @Override
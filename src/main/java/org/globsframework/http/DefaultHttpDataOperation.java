@@ -9,7 +9,7 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
-public class DefaultHttpDataOperation implements MutableHttpDataOperation {
+public class DefaultHttpDataOperation extends AbstractHttpOperation {
     public static final GlobType EMPTY = DefaultGlobTypeBuilder.init("Empty").get();
     private final HttpOp verb;
     private GlobType bodyType;
@@ -23,7 +23,7 @@ public class DefaultHttpDataOperation implements MutableHttpDataOperation {
     private boolean hasSensitiveData = false;
     private GlobType headerType;
     private Glob emptyHeader;
-    private Executor executor = Runnable::run;
+    private Executor executor = DIRECT_EXECUTOR;
 
     public DefaultHttpDataOperation(HttpOp verb, GlobType bodyType, GlobType queryType, HttpDataTreatmentWithHeader httpTreatment) {
         this.verb = verb;
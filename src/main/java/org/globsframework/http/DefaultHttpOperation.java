@@ -11,7 +11,7 @@ import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
-public class DefaultHttpOperation implements MutableHttpDataOperation {
+public class DefaultHttpOperation extends AbstractHttpOperation {
     private static final Logger LOGGER = LoggerFactory.getLogger(DefaultHttpOperation.class);
     public static final GlobType EMPTY = DefaultGlobTypeBuilder.init("Empty").get();
     private final HttpOp verb;
@@ -27,7 +27,7 @@ public class DefaultHttpOperation implements MutableHttpDataOperation {
     private boolean hasSensitiveData = false;
     private GlobType headerType;
     private Glob emptyHeader;
-    private Executor executor = Runnable::run;
+    private Executor executor = DIRECT_EXECUTOR;
 
     public DefaultHttpOperation(HttpOp verb, GlobType bodyType, GlobType queryType, HttpTreatmentWithHeader httpTreatment) {
         this.verb = verb;
@@ -18,6 +18,10 @@ class DefaultUrlMatcher {
                     return null;
                 }
 
+                public Glob parse(UrlPath path) {
+                    return null;
+                }
+
                 public boolean withWildCard() {
                     return false;
                 }
@@ -74,6 +78,18 @@ class DefaultUrlMatcher {
             return instantiate;
         }
 
+        public Glob parse(UrlPath path) {
+            MutableGlob instantiate = globType.instantiate();
+            for (int i = 0, argByPositionLength = argByPosition.length; i < argByPositionLength; i++) {
+                GlobHttpUtils.FromStringConverter fromStringConverter = argByPosition[i];
+                if (fromStringConverter != null) {
+                    fromStringConverter.convert(instantiate, path.getPath(), path.start(i), path.end(i));
+                }
+            }
+            instantiate.set(fields, path.segments(argByPosition.length - 1));
+            return instantiate;
+        }
+
         public boolean withWildCard() {
             return true;
         }
@@ -99,6 +115,17 @@ class DefaultUrlMatcher {
             return instantiate;
         }
 
+        public Glob parse(UrlPath path) {
+            MutableGlob instantiate = globType.instantiate();
+            for (int i = 0, argByPositionLength = argByPosition.length; i < argByPositionLength; i++) {
+                GlobHttpUtils.FromStringConverter fromStringConverter = argByPosition[i];
+                if (fromStringConverter != null) {
+                    fromStringConverter.convert(instantiate, path.getPath(), path.start(i), path.end(i));
+                }
+            }
+            return instantiate;
+        }
+
         public boolean withWildCard() {
             return false;
         }
@@ -0,0 +1,14 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.annotations.ArgName;
+import org.globsframework.core.model.Glob;
+
+// Cheap version of the resource called before the treatment : a matching If-None-Match get a 304 without calling it.
+// Returning null let the ETag be computed from the encoded response.
+public interface ETagVersionProvider {
+
+    String version(@ArgName("url") Glob url,
+                   @ArgName("queryParameters") Glob queryParameters,
+                   @ArgName("headers") Glob headerType
+    ) throws Exception;
+}
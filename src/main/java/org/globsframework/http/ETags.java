@@ -0,0 +1,50 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.zip.CRC32C;
+
+class ETags {
+
+    // weak : the same version is sent in json or binary, compressed or not.
+    static String fromVersion(String version) {
+        return "W/\"" + version.replace("\"", "") + "\"";
+    }
+
+    // strong ETag of the encoded response : crc32c and size of the data.
+    static String hash(List<ByteBuffer> data) {
+        CRC32C crc = new CRC32C();
+        long size = 0;
+        for (ByteBuffer buffer : data) {
+            size += buffer.remaining();
+            crc.update(buffer.duplicate());
+        }
+        return "\"" + Long.toHexString(crc.getValue()) + "-" + Long.toHexString(size) + "\"";
+    }
+
+    // weak comparison as required for If-None-Match.
+    static boolean matches(HttpRequest request, String etag) {
+        Header[] headers = request.getHeaders(HttpHeaders.IF_NONE_MATCH);
+        if (headers == null) {
+            return false;
+        }
+        String opaque = opaque(etag);
+        for (Header header : headers) {
+            for (String element : header.getValue().split(",")) {
+                String value = element.trim();
+                if (value.equals("*") || opaque(value).equals(opaque)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static String opaque(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+}
@@ -0,0 +1,70 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeResolver;
+import org.globsframework.core.model.Glob;
+import org.globsframework.serialisation.BinReaderFactory;
+import org.globsframework.serialisation.BinWriterFactory;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+// Glob binary serialisation (globs-bin-serialisation) as an alternative to json for bodies and responses.
+// The types must declare a FieldNumber on their fields.
+public class GlobBinaryFormat {
+    public static final String MIME_TYPE = "application/x-globs-bin";
+    public static final ContentType CONTENT_TYPE = ContentType.create(MIME_TYPE);
+    private static final BinWriterFactory BIN_WRITER_FACTORY = BinWriterFactory.create();
+    private static final BinReaderFactory BIN_READER_FACTORY = BinReaderFactory.create();
+
+    private GlobBinaryFormat() {
+    }
+
+    public static boolean isBinary(String contentType) {
+        return contentType != null && contentType.regionMatches(true, 0, MIME_TYPE, 0, MIME_TYPE.length());
+    }
+
+    // true if the Accept header of the request contains the binary media type with a non zero q, at least
+    // the q of json (application/json, else application/* or */*).
+    public static boolean accept(HttpRequest request) {
+        Header[] headers = request.getHeaders(HttpHeaders.ACCEPT);
+        if (headers == null) {
+            return false;
+        }
+        double binary = -1;
+        double json = -1;
+        double anyApplication = -1;
+        double any = -1;
+        for (Header header : headers) {
+            for (String element : header.getValue().split(",")) {
+                String[] parts = element.split(";");
+                String mediaType = parts[0].trim().toLowerCase();
+                if (isBinary(mediaType)) {
+                    binary = Math.max(binary, GlobHttpUtils.quality(parts));
+                } else if (mediaType.equals(ContentType.APPLICATION_JSON.getMimeType())) {
+                    json = Math.max(json, GlobHttpUtils.quality(parts));
+                } else if (mediaType.equals("application/*")) {
+                    anyApplication = GlobHttpUtils.quality(parts);
+                } else if (mediaType.equals("*/*")) {
+                    any = GlobHttpUtils.quality(parts);
+                }
+            }
+        }
+        if (json < 0) {
+            json = anyApplication >= 0 ? anyApplication : any;
+        }
+        return binary > 0 && binary >= json;
+    }
+
+    public static void write(Glob glob, OutputStream outputStream) {
+        BIN_WRITER_FACTORY.create(outputStream).write(glob);
+    }
+
+    public static Glob read(InputStream inputStream, GlobType type) {
+        return BIN_READER_FACTORY.createGlobBinReader(GlobTypeResolver.from(type)).read(inputStream).orElse(null);
+    }
+}
@@ -25,4 +25,8 @@ public interface GlobHttpRequestHandler {
     void updateCapacityToReceiveData(CapacityChannel capacityChannel);
 
     void failed(Exception cause);
+
+    // called once the handler is created : startNanos is the reception of the request.
+    default void requestRouted(long startNanos) {
+    }
 }
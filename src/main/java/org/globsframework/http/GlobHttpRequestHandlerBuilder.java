@@ -2,9 +2,13 @@ package org.globsframework.http;
 
 import org.apache.hc.client5.http.async.methods.SimpleHttpResponse;
 import org.apache.hc.client5.http.classic.methods.*;
+import org.apache.hc.core5.http.EntityDetails;
 import org.apache.hc.core5.http.Header;
 import org.apache.hc.core5.http.HttpException;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.message.BasicHeader;
 import org.apache.hc.core5.http.nio.CapacityChannel;
 import org.apache.hc.core5.http.nio.DataStreamChannel;
 import org.apache.hc.core5.http.nio.ResponseChannel;
@@ -141,48 +145,124 @@ public class GlobHttpRequestHandlerBuilder {
         return matcher;
     }
 
-    public GlobHttpRequestHandlerFactory create(String[] path, String method, String paramStr, boolean hasBody) {
-        if (method.equals(HttpHead.METHOD_NAME)) {
-            return (request, entityDetails, responseChannel, context) ->
-                    new ResponseGlobHttpRequestHandler(responseChannel, context, 403);
-        }
-        Glob urlGlob = urlMatcher.parse(path);
-        HttpHandler httpHandler = switch (method) {
+    // null if no operation is registered for this method.
+    HttpHandler getHandler(String method) {
+        return switch (method) {
             case HttpGet.METHOD_NAME -> onGet;
             case HttpPost.METHOD_NAME -> onPost;
             case HttpPut.METHOD_NAME -> onPut;
             case HttpPatch.METHOD_NAME -> onPatch;
             case HttpDelete.METHOD_NAME -> onDelete;
             case HttpOptions.METHOD_NAME -> onOption;
-            default -> throw new IllegalStateException("Unexpected value: " + method);
+            default -> null;
         };
+    }
+
+    Glob parseUrl(UrlPath path) {
+        return urlMatcher.parse(path);
+    }
+
+    public GlobHttpRequestHandlerFactory create(UrlPath path, String method, String paramStr, boolean hasBody) {
+        if (method.equals(HttpHead.METHOD_NAME)) {
+            return (request, entityDetails, responseChannel, context) ->
+                    new ResponseGlobHttpRequestHandler(responseChannel, context, 403);
+        }
+        Glob urlGlob = urlMatcher.parse(path);
+        HttpHandler httpHandler = getHandler(method);
         if (httpHandler == null) {
             if (method.equals(HttpOptions.METHOD_NAME)) {
                 return (request, entityDetails, responseChannel, context) ->
                         new ResponseGlobHttpRequestHandler(responseChannel, context, 200);
             }
-            throw new IllegalStateException("No route for " + String.join("/", path));
+            throw new IllegalStateException("No route for " + path.getPath());
+        }
+        // the request shed does not take a permit of the rate limiter.
+        if (httpHandler.operation.getExecutor() instanceof BoundedExecutor executor && executor.shed()) {
+            if (httpHandler.operation.getMetrics() != null) {
+                httpHandler.operation.getMetrics().recordStatus(503);
+            }
+            // overloaded : rejected before parsing the parameters and reading the body.
+            return (request, entityDetails, responseChannel, context) ->
+                    new ResponseGlobHttpRequestHandler(responseChannel, context, 503,
+                            new BasicHeader(HttpHeaders.RETRY_AFTER, executor.getRetryAfterSeconds()));
+        }
+        RateLimiter rateLimiter = httpHandler.operation.getRateLimiter();
+        if (rateLimiter != null && !rateLimiter.isKeyed()) {
+            long waitNanos = rateLimiter.tryAcquire();
+            if (waitNanos > 0) {
+                return (request, entityDetails, responseChannel, context) ->
+                        tooManyRequests(httpHandler.operation, waitNanos, responseChannel, context);
+            }
+        }
+        if (rateLimiter != null && rateLimiter.isKeyed()) {
+            // the key come from the request : checked before parsing the parameters.
+            return (request, entityDetails, responseChannel, context) -> {
+                long waitNanos = rateLimiter.tryAcquire(request, context);
+                if (waitNanos > 0) {
+                    return tooManyRequests(httpHandler.operation, waitNanos, responseChannel, context);
+                }
+                return createHandler(httpHandler.operation, urlGlob, httpHandler.teatParam(paramStr),
+                        request, entityDetails, responseChannel, context);
+            };
         }
         Glob paramType = httpHandler.teatParam(paramStr);
         return (request, entityDetails, responseChannel, context) ->
-                new DefaultGlobHttpRequestHandler(httpHandler.operation, urlGlob, paramType, request, entityDetails, responseChannel, context);
+                createHandler(httpHandler.operation, urlGlob, paramType, request, entityDetails, responseChannel, context);
+    }
+
+    private static GlobHttpRequestHandler createHandler(HttpOperation operation, Glob urlGlob, Glob paramType, HttpRequest request,
+                                                        EntityDetails entityDetails, ResponseChannel responseChannel, HttpContext context) {
+        ConcurrencyLimiter concurrencyLimiter = operation.getConcurrencyLimiter();
+        if (concurrencyLimiter == null) {
+            return new DefaultGlobHttpRequestHandler(operation, urlGlob, paramType, request, entityDetails, responseChannel, context);
+        }
+        ConcurrencyLimiter.Permit permit = concurrencyLimiter.tryAcquire();
+        if (permit == null) {
+            if (operation.getMetrics() != null) {
+                operation.getMetrics().recordStatus(503);
+            }
+            return new ResponseGlobHttpRequestHandler(responseChannel, context, 503,
+                    new BasicHeader(HttpHeaders.RETRY_AFTER, BoundedExecutor.DEFAULT_RETRY_AFTER_SECONDS));
+        }
+        return new DefaultGlobHttpRequestHandler(operation, urlGlob, paramType, request, entityDetails, responseChannel, context)
+                .withConcurrencyPermit(permit);
+    }
+
+    private static GlobHttpRequestHandler tooManyRequests(HttpOperation operation, long waitNanos,
+                                                          ResponseChannel responseChannel, HttpContext context) {
+        if (operation.getMetrics() != null) {
+            operation.getMetrics().recordStatus(429);
+        }
+        return new ResponseGlobHttpRequestHandler(responseChannel, context, 429,
+                new BasicHeader(HttpHeaders.RETRY_AFTER, RateLimiter.toRetryAfterSeconds(waitNanos)));
     }
 
     private static class ResponseGlobHttpRequestHandler implements GlobHttpRequestHandler {
         private final ResponseChannel responseChannel;
         private final HttpContext context;
         private final int code;
+        private final Header[] headers;
+        private boolean sent;
 
-        public ResponseGlobHttpRequestHandler(ResponseChannel responseChannel, HttpContext context, int code) {
+        public ResponseGlobHttpRequestHandler(ResponseChannel responseChannel, HttpContext context, int code, Header... headers) {
             this.responseChannel = responseChannel;
             this.context = context;
             this.code = code;
+            this.headers = headers;
         }
 
         @Override
         public void callHandler() {
+            if (sent) {
+                return;
+            }
+            sent = true;
             try {
-                responseChannel.sendResponse(SimpleHttpResponse.create(code), null, context);
+                SimpleHttpResponse response = SimpleHttpResponse.create(code);
+                for (Header header : headers) {
+                    response.addHeader(header);
+                }
+                responseChannel.sendResponse(response, null, context);
             } catch (HttpException | IOException e) {
                 throw new RuntimeException(e);
             }
@@ -190,12 +270,13 @@ public class GlobHttpRequestHandlerBuilder {
 
         @Override
         public void streamEnd(List<? extends Header> trailers) {
-
+            callHandler();
         }
 
         @Override
         public void consumeRequest(ByteBuffer src) {
-
+            // the body is not read.
+            callHandler();
         }
 
         @Override
@@ -214,7 +295,11 @@ public class GlobHttpRequestHandlerBuilder {
 
         @Override
         public void updateCapacityToReceiveData(CapacityChannel capacityChannel) {
-
+            try {
+                capacityChannel.update(Integer.MAX_VALUE);
+            } catch (IOException e) {
+                LOGGER.error("Fail to update request capacity", e);
+            }
         }
 
         @Override
@@ -5,15 +5,24 @@ import org.apache.hc.client5.http.classic.methods.HttpGet;
 import org.apache.hc.client5.http.classic.methods.HttpPost;
 import org.apache.hc.client5.http.classic.methods.HttpPut;
 import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
 import org.apache.hc.core5.http.NameValuePair;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.message.BasicNameValuePair;
 import org.apache.hc.core5.net.URLEncodedUtils;
+import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.metamodel.fields.*;
 import org.globsframework.core.model.Glob;
 import org.globsframework.core.model.MutableGlob;
 import org.globsframework.json.GSonUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
 import java.time.*;
 import java.util.*;
@@ -84,6 +93,41 @@ public class GlobHttpUtils {
         return new HttpGet(createURL(route, format));
     }
 
+    // body sent with the glob binary format (the type must declare field numbers).
+    public static HttpPost createBinPost(String route, Glob parameters, Glob body) {
+        HttpPost httpPost = createPost(route, parameters);
+        httpPost.setEntity(createBinEntity(body));
+        return httpPost;
+    }
+
+    public static HttpPut createBinPut(String route, Glob parameters, Glob body) {
+        HttpPut httpPut = createPut(route, parameters);
+        httpPut.setEntity(createBinEntity(body));
+        return httpPut;
+    }
+
+    public static ByteArrayEntity createBinEntity(Glob body) {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        GlobBinaryFormat.write(body, outputStream);
+        return new ByteArrayEntity(outputStream.toByteArray(), GlobBinaryFormat.CONTENT_TYPE);
+    }
+
+    // ask for a binary response (json is still accepted if the response type can not be sent in binary).
+    public static <T extends HttpRequest> T acceptBin(T request) {
+        request.setHeader(HttpHeaders.ACCEPT, GlobBinaryFormat.MIME_TYPE + ", " + ContentType.APPLICATION_JSON.getMimeType() + ";q=0.5");
+        return request;
+    }
+
+    // decode a binary or json response.
+    public static Glob decode(HttpEntity entity, GlobType type) throws IOException {
+        try (InputStream content = entity.getContent()) {
+            if (GlobBinaryFormat.isBinary(entity.getContentType())) {
+                return GlobBinaryFormat.read(content, type);
+            }
+            return GSonUtils.decode(new InputStreamReader(content, StandardCharsets.UTF_8), type);
+        }
+    }
+
     public static String formatURL(Glob parameters) {
         return URLEncodedUtils.format(glob2ValuePairList(parameters), StandardCharsets.UTF_8);
     }
@@ -146,6 +190,21 @@ public class GlobHttpUtils {
         return nameValuePairList;
     }
 
+    // q parameter of an element of an Accept or Accept-Encoding header split on ';'.
+    static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
     public static FromStringConverter createConverter(Field field, String arraySeparator) {
         return field.safeAccept(new FieldVisitor.AbstractWithErrorVisitor() {
             FromStringConverter fromStringConverter1;
@@ -202,6 +261,11 @@ public class GlobHttpUtils {
 
     public interface FromStringConverter {
         void convert(MutableGlob glob, String str);
+
+        // convert the [start, end[ slice of str, without creating a substring when the target type allow it.
+        default void convert(MutableGlob glob, String str, int start, int end) {
+            convert(glob, str.substring(start, end));
+        }
     }
 
     public static class ToStringConverter implements FromStringConverter {
@@ -230,6 +294,10 @@ public class GlobHttpUtils {
                 glob.set(field, Integer.parseInt(str));
             }
         }
+
+        public void convert(MutableGlob glob, String str, int start, int end) {
+            glob.set(field, Integer.parseInt(str, start, end, 10));
+        }
     }
 
     public static class ToBooleanConverter implements FromStringConverter {
@@ -244,6 +312,10 @@ public class GlobHttpUtils {
                 glob.set(field, Boolean.valueOf(str));
             }
         }
+
+        public void convert(MutableGlob glob, String str, int start, int end) {
+            glob.set(field, end - start == 4 && str.regionMatches(true, start, "true", 0, 4));
+        }
     }
 
     public static class ToDateTimeConverter implements FromStringConverter {
@@ -306,6 +378,10 @@ public class GlobHttpUtils {
                 glob.set(field, Long.parseLong(str));
             }
         }
+
+        public void convert(MutableGlob glob, String str, int start, int end) {
+            glob.set(field, Long.parseLong(str, start, end, 10));
+        }
     }
 
     public static class ToStringArrayConverter implements FromStringConverter {
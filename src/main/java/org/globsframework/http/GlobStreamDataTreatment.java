@@ -0,0 +1,49 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.Glob;
+import org.globsframework.json.GSonUtils;
+
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.concurrent.CompletableFuture;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// The body is read as a stream (received while it is read) and split in its globs : each one is decoded
+// and given to the consumer before the next one is read.
+class GlobStreamDataTreatment implements HttpDataTreatmentWithHeader {
+    private final GlobType itemType;
+    private final int maxItemSize;
+    private final HttpGlobStreamTreatment treatment;
+
+    GlobStreamDataTreatment(GlobType itemType, int maxItemSize, HttpGlobStreamTreatment treatment) {
+        this.itemType = itemType;
+        this.maxItemSize = maxItemSize;
+        this.treatment = treatment;
+    }
+
+    public CompletableFuture<HttpOutputData> consume(HttpInputData body, Glob url, Glob queryParameters, Glob header) throws Exception {
+        HttpGlobStreamTreatment.GlobConsumer consumer = treatment.start(url, queryParameters, header);
+        HttpInputData.SizedStream stream = body != null ? body.asStream() : null;
+        if (stream != null) {
+            try (Reader reader = new InputStreamReader(stream.stream(), UTF_8)) {
+                JsonValueSplitter splitter = new JsonValueSplitter(reader, maxItemSize);
+                String value;
+                while ((value = splitter.next()) != null) {
+                    Glob glob;
+                    try {
+                        glob = GSonUtils.decode(value, itemType);
+                    } catch (RuntimeException e) {
+                        throw new HttpException(400, "Invalid " + itemType.getName() + " : " + e.getMessage());
+                    }
+                    consumer.accept(glob);
+                }
+            } catch (Exception e) {
+                consumer.failed(e);
+                throw e;
+            }
+        }
+        return consumer.end().thenApply(HttpOutputData::asGlob);
+    }
+}
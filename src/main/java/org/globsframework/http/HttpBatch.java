@@ -0,0 +1,392 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeBuilder;
+import org.globsframework.core.metamodel.GlobTypeBuilderFactory;
+import org.globsframework.core.metamodel.fields.GlobArrayField;
+import org.globsframework.core.metamodel.fields.IntegerField;
+import org.globsframework.core.metamodel.fields.StringField;
+import org.globsframework.core.model.Glob;
+import org.globsframework.core.utils.Strings;
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.accesslog.AccessLogRecord;
+import org.globsframework.http.metrics.RouteMetrics;
+import org.globsframework.json.GSonUtils;
+import org.globsframework.json.annottations.IsJsonContent;
+import org.globsframework.json.annottations.IsJsonContent_;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Treatment of the batch route : each request of the batch is routed with the RequestDispatcher and its operation
+// is called on the executor of the operation, at most maxConcurrency at a time.
+// Each request go through the limits of its operation (rate limiter, load shedding, concurrency limiter, deadline)
+// and is recorded in its metrics and access log as a request would be.
+// The responses are returned in the order of the requests with their status and their json body.
+// The requests of a batch have no http header : the operations get an empty header Glob.
+public class HttpBatch implements HttpTreatment {
+    private static final Logger LOGGER = LoggerFactory.getLogger(HttpBatch.class);
+    public static final int DEFAULT_MAX_REQUESTS = 50;
+    public static final int DEFAULT_MAX_CONCURRENCY = 8;
+    private final String url;
+    private final Supplier<RequestDispatcher> dispatcher;
+    private final int maxRequests;
+    private final int maxConcurrency;
+
+    HttpBatch(String url, Supplier<RequestDispatcher> dispatcher, int maxRequests, int maxConcurrency) {
+        this.url = url;
+        this.dispatcher = dispatcher;
+        this.maxRequests = maxRequests;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public CompletableFuture<Glob> consume(Glob body, Glob url, Glob queryParameters) {
+        Glob[] requests = body != null ? body.getOrEmpty(BatchRequest.requests) : new Glob[0];
+        if (requests.length > maxRequests) {
+            throw new HttpException(413, "Too many requests in the batch : " + requests.length + " > " + maxRequests);
+        }
+        RequestDispatcher requestDispatcher = dispatcher.get();
+        if (requestDispatcher == null) {
+            throw new HttpException(503, "Server not started");
+        }
+        Batch batch = new Batch(requestDispatcher, requests, Deadline.current());
+        for (int i = 0; i < Math.min(maxConcurrency, requests.length); i++) {
+            batch.next();
+        }
+        if (requests.length == 0) {
+            batch.result.complete(BatchResponse.TYPE.instantiate().set(BatchResponse.responses, new Glob[0]));
+        }
+        return batch.result;
+    }
+
+    private class Batch {
+        private final RequestDispatcher requestDispatcher;
+        private final Glob[] requests;
+        private final Glob[] responses;
+        private final AtomicInteger started = new AtomicInteger();
+        private final AtomicInteger completed = new AtomicInteger();
+        private final CompletableFuture<Glob> result = new CompletableFuture<>();
+        private final Deadline deadline;
+
+        Batch(RequestDispatcher requestDispatcher, Glob[] requests, Deadline deadline) {
+            this.requestDispatcher = requestDispatcher;
+            this.requests = requests;
+            this.responses = new Glob[requests.length];
+            this.deadline = deadline;
+        }
+
+        void next() {
+            int index = started.getAndIncrement();
+            if (index >= requests.length) {
+                return;
+            }
+            CompletableFuture<Glob> response;
+            try {
+                response = call(requests[index]);
+            } catch (Throwable e) {
+                response = CompletableFuture.failedFuture(e);
+            }
+            response.whenComplete((glob, throwable) -> {
+                responses[index] = throwable != null ? error(throwable) : glob;
+                if (completed.incrementAndGet() == requests.length) {
+                    result.complete(BatchResponse.TYPE.instantiate().set(BatchResponse.responses, responses));
+                } else {
+                    next();
+                }
+            });
+        }
+
+        private CompletableFuture<Glob> call(Glob request) throws Exception {
+            String path = request.get(BatchItem.url);
+            if (Strings.isNullOrEmpty(path)) {
+                return CompletableFuture.completedFuture(status(400, "Missing url"));
+            }
+            UrlPath urlPath = UrlPath.parse(path.startsWith("/") ? path : "/" + path);
+            GlobHttpRequestHandlerBuilder builder = requestDispatcher.find(urlPath);
+            if (builder == null) {
+                return CompletableFuture.completedFuture(status(404, "No route for " + path));
+            }
+            if (builder == requestDispatcher.find(UrlPath.parse(url))) {
+                return CompletableFuture.completedFuture(status(400, "Batch in batch"));
+            }
+            String verb = request.get(BatchItem.verb, "GET").toUpperCase(Locale.ROOT);
+            GlobHttpRequestHandlerBuilder.HttpHandler httpHandler = builder.getHandler(verb);
+            if (httpHandler == null) {
+                return CompletableFuture.completedFuture(status(405, "No " + verb + " for " + path));
+            }
+            HttpOperation operation = httpHandler.operation;
+            Call call = new Call(operation, verb, path);
+            RateLimiter rateLimiter = operation.getRateLimiter();
+            if (operation.getExecutor() instanceof BoundedExecutor executor && executor.shed()) {
+                return call.complete(status(503, "Overloaded"));
+            }
+            if (rateLimiter != null) {
+                // a keyed limiter use its route bucket : the key of the batch request is not known here.
+                long waitNanos = rateLimiter.tryAcquire();
+                if (waitNanos > 0) {
+                    return call.complete(status(429, "Retry after " + RateLimiter.toRetryAfterSeconds(waitNanos) + "s"));
+                }
+            }
+            String query = urlPath.query() != null ? urlPath.query() : request.get(BatchItem.query);
+            Glob urlGlob = builder.parseUrl(urlPath);
+            Glob queryParameters = httpHandler.teatParam(query);
+            HttpInputData inputData;
+            try {
+                inputData = inputData(operation, request.get(BatchItem.body));
+            } catch (RuntimeException e) {
+                return call.complete(status(400, "Invalid body : " + e.getMessage()));
+            }
+            ConcurrencyLimiter concurrencyLimiter = operation.getConcurrencyLimiter();
+            if (concurrencyLimiter != null) {
+                call.permit = concurrencyLimiter.tryAcquire();
+                if (call.permit == null) {
+                    return call.complete(status(503, "Overloaded"));
+                }
+            }
+            Deadline callDeadline = deadline(operation);
+            if (callDeadline != null) {
+                call.timeout = DeadlineTimer.DEFAULT.schedule(call::expired, callDeadline.remainingNanos());
+            }
+            try {
+                operation.getExecutor().execute(() -> {
+                    if (call.isDone()) {
+                        return; // expired while queued.
+                    }
+                    Deadline previous = callDeadline != null ? Deadline.enter(callDeadline) : null;
+                    try {
+                        call.treatmentStart = System.nanoTime();
+                        call.treatment = operation.consume(inputData, urlGlob, queryParameters,
+                                operation.getHeaderType() != null ? operation.getHeaderType().instantiate() : null);
+                        call.treatment.whenComplete((httpOutputData, throwable) ->
+                                call.complete(throwable != null ? error(throwable) : ok(httpOutputData)));
+                        if (call.isDone()) {
+                            call.treatment.cancel(true); // expired during consume.
+                        }
+                    } catch (Throwable e) {
+                        call.complete(error(e));
+                    } finally {
+                        if (callDeadline != null) {
+                            Deadline.exit(previous);
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                call.complete(status(503, "Overloaded"));
+            }
+            return call.response;
+        }
+
+        // the first to expire of the deadline of the operation and of the batch.
+        private Deadline deadline(HttpOperation operation) {
+            long timeoutNanos = operation.getTimeoutNanos();
+            if (timeoutNanos <= 0) {
+                return deadline;
+            }
+            if (deadline != null && deadline.remainingNanos() < timeoutNanos) {
+                return deadline;
+            }
+            return Deadline.after(timeoutNanos);
+        }
+    }
+
+    // a request of the batch : completed once (by the treatment or its deadline), it then release its permit
+    // and is recorded in the metrics and the access log of its operation.
+    private static class Call {
+        private final HttpOperation operation;
+        private final String verb;
+        private final String path;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean done = new AtomicBoolean();
+        private final CompletableFuture<Glob> response = new CompletableFuture<>();
+        private volatile long treatmentStart;
+        private volatile CompletableFuture<HttpOutputData> treatment;
+        private ConcurrencyLimiter.Permit permit;
+        private DeadlineTimer.Timeout timeout;
+
+        Call(HttpOperation operation, String verb, String path) {
+            this.operation = operation;
+            this.verb = verb;
+            this.path = path;
+        }
+
+        boolean isDone() {
+            return done.get();
+        }
+
+        // called by the timer thread.
+        void expired() {
+            CompletableFuture<HttpOutputData> current = treatment;
+            if (finish(status(504, "Deadline expired")) && current != null) {
+                current.cancel(true);
+            }
+        }
+
+        CompletableFuture<Glob> complete(Glob glob) {
+            finish(glob);
+            return response;
+        }
+
+        // false if already completed.
+        private boolean finish(Glob glob) {
+            if (!done.compareAndSet(false, true)) {
+                return false;
+            }
+            long now = System.nanoTime();
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            long[] phaseNanos = new long[RouteMetrics.Phase.values().length];
+            phaseNanos[RouteMetrics.Phase.total.ordinal()] = now - start;
+            if (treatmentStart != 0) {
+                phaseNanos[RouteMetrics.Phase.treatment.ordinal()] = now - treatmentStart;
+            }
+            if (permit != null) {
+                if (treatmentStart != 0) {
+                    permit.release(now - treatmentStart);
+                } else {
+                    permit.release();
+                }
+            }
+            int status = glob.get(BatchItemResponse.status);
+            RouteMetrics metrics = operation.getMetrics();
+            if (metrics != null) {
+                metrics.recordStatus(status);
+                metrics.recordPhase(RouteMetrics.Phase.total, phaseNanos[RouteMetrics.Phase.total.ordinal()]);
+                if (treatmentStart != 0) {
+                    metrics.recordPhase(RouteMetrics.Phase.treatment, phaseNanos[RouteMetrics.Phase.treatment.ordinal()]);
+                }
+            }
+            AccessLog accessLog = operation.getAccessLog();
+            if (accessLog != null && accessLog.isSampled(status)) {
+                accessLog.log(new AccessLogRecord(System.currentTimeMillis(), verb, metrics != null ? metrics.getRoute() : null,
+                        path, status, 0, 0, phaseNanos, operation.hasSensitiveData(), null, null));
+            }
+            response.complete(glob);
+            return true;
+        }
+    }
+
+    private static HttpInputData inputData(HttpOperation operation, String body) {
+        if (body == null) {
+            return null;
+        }
+        if (operation.getBodyType() != null) {
+            return HttpInputData.fromGlob(GSonUtils.decode(body, operation.getBodyType()));
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        return HttpInputData.fromStream(new ByteArrayInputStream(bytes), bytes.length);
+    }
+
+    private static Glob ok(HttpOutputData httpOutputData) {
+        if (httpOutputData == null || (httpOutputData.isGlob() && httpOutputData.getGlob() == null)) {
+            return BatchItemResponse.TYPE.instantiate().set(BatchItemResponse.status, 204);
+        }
+        if (!httpOutputData.isGlob()) {
+            return status(501, "Stream response not supported in a batch");
+        }
+        return BatchItemResponse.TYPE.instantiate()
+                .set(BatchItemResponse.status, 200)
+                .set(BatchItemResponse.body, GSonUtils.encode(httpOutputData.getGlob(), false));
+    }
+
+    private static Glob error(Throwable throwable) {
+        if (throwable instanceof CompletionException && throwable.getCause() != null) {
+            throwable = throwable.getCause();
+        }
+        if (throwable instanceof HttpExceptionWithContent exception) {
+            return BatchItemResponse.TYPE.instantiate()
+                    .set(BatchItemResponse.status, exception.getCode())
+                    .set(BatchItemResponse.body, exception.getContent() != null ?
+                            GSonUtils.encodeWithoutKind(exception.getContent()) : null);
+        }
+        if (throwable instanceof HttpException exception) {
+            return status(exception.getCode(), exception.getOriginalMessage());
+        }
+        LOGGER.error("Fail to handle batch request", throwable);
+        return status(500, null);
+    }
+
+    private static Glob status(int status, String message) {
+        return BatchItemResponse.TYPE.instantiate()
+                .set(BatchItemResponse.status, status)
+                .set(BatchItemResponse.message, message);
+    }
+
+    public static class BatchItem {
+        public static final GlobType TYPE;
+
+        public static final StringField verb;
+
+        public static final StringField url;
+
+        public static final StringField query;
+
+        @IsJsonContent_
+        public static final StringField body;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("BatchItem");
+            TYPE = typeBuilder.unCompleteType();
+            verb = typeBuilder.declareStringField("verb");
+            url = typeBuilder.declareStringField("url");
+            query = typeBuilder.declareStringField("query");
+            body = typeBuilder.declareStringField("body", IsJsonContent.UNIQUE_GLOB);
+            typeBuilder.complete();
+        }
+    }
+
+    public static class BatchRequest {
+        public static final GlobType TYPE;
+
+        public static final GlobArrayField requests;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("BatchRequest");
+            TYPE = typeBuilder.unCompleteType();
+            requests = typeBuilder.declareGlobArrayField("requests", BatchItem.TYPE);
+            typeBuilder.complete();
+        }
+    }
+
+    public static class BatchItemResponse {
+        public static final GlobType TYPE;
+
+        public static final IntegerField status;
+
+        public static final StringField message;
+
+        @IsJsonContent_
+        public static final StringField body;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("BatchItemResponse");
+            TYPE = typeBuilder.unCompleteType();
+            status = typeBuilder.declareIntegerField("status");
+            message = typeBuilder.declareStringField("message");
+            body = typeBuilder.declareStringField("body", IsJsonContent.UNIQUE_GLOB);
+            typeBuilder.complete();
+        }
+    }
+
+    public static class BatchResponse {
+        public static final GlobType TYPE;
+
+        public static final GlobArrayField responses;
+
+        static {
+            GlobTypeBuilder typeBuilder = GlobTypeBuilderFactory.create("BatchResponse");
+            TYPE = typeBuilder.unCompleteType();
+            responses = typeBuilder.declareGlobArrayField("responses", BatchItemResponse.TYPE);
+            typeBuilder.complete();
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.annotations.ArgName;
+import org.globsframework.core.model.Glob;
+
+import java.util.concurrent.CompletableFuture;
+
+// Treatment of a body made of many globs (json array or newline delimited json) : the globs are given one by one
+// as they are decoded and the body is received at the pace of accept.
+public interface HttpGlobStreamTreatment {
+
+    GlobConsumer start(@ArgName("url") Glob url,
+                       @ArgName("queryParameters") Glob queryParameters,
+                       @ArgName("headers") Glob header) throws Exception;
+
+    interface GlobConsumer {
+
+        void accept(Glob glob) throws Exception;
+
+        // all the globs were given : the response (null for a 204).
+        CompletableFuture<Glob> end() throws Exception;
+
+        // the body is invalid or could not be read : accept and end will not be called anymore.
+        default void failed(Throwable cause) {
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.globsframework.http;
+
+import org.globsframework.http.metrics.PrometheusFormat;
+import org.globsframework.http.metrics.RouteMetrics;
+import org.globsframework.http.streams.ByteBufferPool;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Prometheus export of the metrics of the registered operations.
+class HttpMetrics {
+    private static final double NANOS = 1e9;
+    private static final String[] STATUS_CLASSES = {"unknown", "1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private HttpMetrics() {
+    }
+
+    static String export(Collection<HttpOperation> operations) {
+        PrometheusFormat format = new PrometheusFormat();
+        List<RouteMetrics> routes = new ArrayList<>();
+        for (HttpOperation operation : operations) {
+            if (operation.getMetrics() != null) {
+                routes.add(operation.getMetrics());
+            }
+        }
+
+        format.declare("globs_http_requests_total", "counter", "Responses by route and status class.");
+        for (RouteMetrics route : routes) {
+            for (int statusClass = 0; statusClass < STATUS_CLASSES.length; statusClass++) {
+                long count = route.getCount(statusClass);
+                if (count != 0) {
+                    format.sample("globs_http_requests_total", labels(route, "status", STATUS_CLASSES[statusClass]), count);
+                }
+            }
+        }
+        format.declare("globs_http_request_duration_seconds", "histogram", "Request latency by route and phase.");
+        for (RouteMetrics route : routes) {
+            for (RouteMetrics.Phase phase : RouteMetrics.Phase.values()) {
+                if (route.getPhase(phase).getCount() != 0) {
+                    format.histogram("globs_http_request_duration_seconds", labels(route, "phase", phase.name()),
+                            route.getPhase(phase), NANOS);
+                }
+            }
+        }
+        format.declare("globs_http_request_size_bytes", "histogram", "Request body size by route.");
+        for (RouteMetrics route : routes) {
+            format.histogram("globs_http_request_size_bytes", labels(route), route.getRequestSize(), 1);
+        }
+        format.declare("globs_http_response_size_bytes", "histogram", "Response size sent by route.");
+        for (RouteMetrics route : routes) {
+            format.histogram("globs_http_response_size_bytes", labels(route), route.getResponseSize(), 1);
+        }
+
+        exportCaches(format, operations);
+        exportExecutors(format, operations);
+        exportConcurrencyLimits(format, operations);
+
+        format.declare("globs_http_compressed_responses_total", "counter", "Responses compressed with gzip or deflate.")
+                .sample("globs_http_compressed_responses_total", "", ResponseCompression.getCompressedResponses());
+        format.declare("globs_http_compression_ratio", "gauge", "Compressed size / original size of the compressed responses.")
+                .sample("globs_http_compression_ratio", "", ResponseCompression.getCompressionRatio());
+        format.declare("globs_http_compression_seconds_total", "counter", "Time spent compressing the responses.")
+                .sample("globs_http_compression_seconds_total", "", ResponseCompression.getCompressionNanos() / NANOS);
+        ByteBufferPool pool = ByteBufferPool.DEFAULT;
+        format.declare("globs_http_buffer_pool_hits_total", "counter", "Buffers taken from the pool.")
+                .sample("globs_http_buffer_pool_hits_total", "", pool.getHits());
+        format.declare("globs_http_buffer_pool_misses_total", "counter", "Buffers allocated.")
+                .sample("globs_http_buffer_pool_misses_total", "", pool.getMisses());
+        format.declare("globs_http_buffer_pool_bytes", "gauge", "Free bytes in the pool.")
+                .sample("globs_http_buffer_pool_bytes", "", pool.getPooledBytes());
+        return format.toString();
+    }
+
+    private static void exportCaches(PrometheusFormat format, Collection<HttpOperation> operations) {
+        List<HttpOperation> cached = operations.stream().filter(operation -> operation.getResponseCache() != null).toList();
+        if (cached.isEmpty()) {
+            return;
+        }
+        format.declare("globs_http_cache_hits_total", "counter", "Responses sent from the response cache.");
+        cached.forEach(operation -> format.sample("globs_http_cache_hits_total", labels(operation.getMetrics()),
+                operation.getResponseCache().getHits()));
+        format.declare("globs_http_cache_misses_total", "counter", "Response cache misses.");
+        cached.forEach(operation -> format.sample("globs_http_cache_misses_total", labels(operation.getMetrics()),
+                operation.getResponseCache().getMisses()));
+        format.declare("globs_http_cache_evictions_total", "counter", "Entries evicted from the response cache.");
+        cached.forEach(operation -> format.sample("globs_http_cache_evictions_total", labels(operation.getMetrics()),
+                operation.getResponseCache().getEvictions()));
+        format.declare("globs_http_cache_bytes", "gauge", "Size of the cached responses.");
+        cached.forEach(operation -> format.sample("globs_http_cache_bytes", labels(operation.getMetrics()),
+                operation.getResponseCache().getBytes()));
+    }
+
+    private static void exportExecutors(PrometheusFormat format, Collection<HttpOperation> operations) {
+        Map<BoundedExecutor, Boolean> executors = new IdentityHashMap<>(); // can be shared by many operations
+        for (HttpOperation operation : operations) {
+            if (operation.getExecutor() instanceof BoundedExecutor executor) {
+                executors.put(executor, Boolean.TRUE);
+            }
+        }
+        if (executors.isEmpty()) {
+            return;
+        }
+        format.declare("globs_http_executor_queue_depth", "gauge", "Tasks waiting in the executor queue.");
+        executors.keySet().forEach(executor -> format.sample("globs_http_executor_queue_depth",
+                PrometheusFormat.labels("executor", executor.getName()), executor.getQueueDepth()));
+        format.declare("globs_http_executor_active_threads", "gauge", "Threads running a task.");
+        executors.keySet().forEach(executor -> format.sample("globs_http_executor_active_threads",
+                PrometheusFormat.labels("executor", executor.getName()), executor.getActiveCount()));
+        format.declare("globs_http_executor_rejected_total", "counter", "Requests rejected with a 503.");
+        executors.keySet().forEach(executor -> format.sample("globs_http_executor_rejected_total",
+                PrometheusFormat.labels("executor", executor.getName()), executor.getRejected()));
+    }
+
+    private static void exportConcurrencyLimits(PrometheusFormat format, Collection<HttpOperation> operations) {
+        List<HttpOperation> limited = operations.stream().filter(operation -> operation.getConcurrencyLimiter() != null).toList();
+        if (limited.isEmpty()) {
+            return;
+        }
+        format.declare("globs_http_concurrency_limit", "gauge", "Adaptive limit of the calls in progress.");
+        limited.forEach(operation -> format.sample("globs_http_concurrency_limit", labels(operation.getMetrics()),
+                operation.getConcurrencyLimiter().getLimit()));
+        format.declare("globs_http_concurrency_in_flight", "gauge", "Calls in progress.");
+        limited.forEach(operation -> format.sample("globs_http_concurrency_in_flight", labels(operation.getMetrics()),
+                operation.getConcurrencyLimiter().getInFlight()));
+        format.declare("globs_http_concurrency_rejected_total", "counter", "Requests rejected with a 503 over the limit.");
+        limited.forEach(operation -> format.sample("globs_http_concurrency_rejected_total", labels(operation.getMetrics()),
+                operation.getConcurrencyLimiter().getRejected()));
+    }
+
+    private static String labels(RouteMetrics route, String... others) {
+        String[] labels = new String[4 + others.length];
+        labels[0] = "route";
+        labels[1] = route.getRoute();
+        labels[2] = "method";
+        labels[3] = route.getMethod();
+        System.arraycopy(others, 0, labels, 4, others.length);
+        return PrometheusFormat.labels(labels);
+    }
+}
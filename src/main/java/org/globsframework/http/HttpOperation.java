@@ -2,11 +2,15 @@ package org.globsframework.http;
 
 import org.globsframework.core.metamodel.GlobType;
 import org.globsframework.core.model.Glob;
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.metrics.RouteMetrics;
 
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 
 public interface HttpOperation {
+    // default executor : the treatment is called on the io thread.
+    Executor DIRECT_EXECUTOR = Runnable::run;
 
     void withExecutor(Executor executor);
 
@@ -28,6 +32,67 @@ public interface HttpOperation {
 
     boolean hasSensitiveData();
 
+    // the options below are off for the operations not built by HttpServerRegister.
+    default boolean isStreamedResponse() {
+        return false;
+    }
+
+    default boolean isIncrementalBody() {
+        return false;
+    }
+
+    default boolean isCompressionEnabled() {
+        return false;
+    }
+
+    default int getCompressionMinSize() {
+        return ResponseCompression.DEFAULT_MIN_SIZE;
+    }
+
+    default long getMaxDecompressedBodySize() {
+        return RequestBodyDecoding.DEFAULT_MAX_DECOMPRESSED_SIZE;
+    }
+
+    default boolean hasETag() {
+        return false;
+    }
+
+    default ETagVersionProvider getETagVersionProvider() {
+        return null;
+    }
+
+    default ResponseCache getResponseCache() {
+        return null;
+    }
+
+    default SingleFlight getSingleFlight() {
+        return null;
+    }
+
+    default RouteMetrics getMetrics() {
+        return null;
+    }
+
+    default AccessLog getAccessLog() {
+        return null;
+    }
+
+    default RateLimiter getRateLimiter() {
+        return null;
+    }
+
+    default ConcurrencyLimiter getConcurrencyLimiter() {
+        return null;
+    }
+
+    default long getTimeoutNanos() {
+        return 0;
+    }
+
+    default String getTimeoutHeader() {
+        return null;
+    }
+
     GlobType getHeaderType();
 
     interface HeaderConsumer {
@@ -3,6 +3,8 @@ package org.globsframework.http;
 import org.globsframework.core.model.Glob;
 
 import java.io.InputStream;
+import java.util.Iterator;
+import java.util.concurrent.Flow;
 
 public interface HttpOutputData {
 
@@ -13,6 +15,10 @@ public interface HttpOutputData {
     record SizedStream(InputStream stream, long size) {}
     SizedStream getStream();
 
+    // globs sent as newline delimited json : the next ones are read only when the response has room.
+    default Iterator<Glob> getGlobs() {
+        return null;
+    }
 
     static HttpOutputData asGlob(Glob glob) {
         return new HttpOutputData() {
@@ -47,4 +53,31 @@ public interface HttpOutputData {
 
         };
     }
+
+    // the iterator is read on a virtual thread (not on the executor of the operation) : hasNext can block.
+    // If it is AutoCloseable, it is closed at the end of the response.
+    static HttpOutputData asGlobs(Iterator<Glob> globs) {
+        return new HttpOutputData() {
+            public boolean isGlob() {
+                return false;
+            }
+
+            public Glob getGlob() {
+                return null;
+            }
+
+            public SizedStream getStream() {
+                return null;
+            }
+
+            public Iterator<Glob> getGlobs() {
+                return globs;
+            }
+        };
+    }
+
+    // the publisher is subscribed when the response is sent, the globs are requested as they are written.
+    static HttpOutputData asGlobs(Flow.Publisher<Glob> publisher) {
+        return asGlobs(new PublisherIterator<>(publisher, 64));
+    }
 }
@@ -19,6 +19,8 @@ import java.util.List;
 
 public class HttpRequestHttpAsyncServerExchangeTree implements AsyncServerExchangeHandler {
     public static final Logger LOGGER = LoggerFactory.getLogger(HttpRequestHttpAsyncServerExchangeTree.class);
+    // reused by each io thread : the url is only read while the request is dispatched.
+    private static final ThreadLocal<UrlPath> URL_PATH = ThreadLocal.withInitial(UrlPath::new);
     private final RequestDispatcher requestDispatcher;
     private final HttpRequest request;
     private HttpContext context;
@@ -35,20 +37,18 @@ public class HttpRequestHttpAsyncServerExchangeTree implements AsyncServerExchan
     public void handleRequest(HttpRequest request, EntityDetails entityDetails, ResponseChannel responseChannel, HttpContext context) throws HttpException, IOException {
         assert this.context == context;
         assert this.request == request;
-        String path = request.getPath();
-        int i = path.indexOf("?");
-        String urlStr = path.substring(1, i == -1 ? path.length() : i); // remove first /
-        String paramStr = i == -1 ? null : path.substring(i + 1);
-        String[] split = urlStr.split("/");
         if (globHttpRequestHandlerFactory != null) {
             throw new RuntimeException("Bug : duplicate call to handleRequest");
         }
-        globHttpRequestHandlerFactory = requestDispatcher.createHandler(split, request.getMethod(), paramStr, entityDetails != null);
+        long start = System.nanoTime();
+        UrlPath urlPath = URL_PATH.get().reset(request.getPath());
+        globHttpRequestHandlerFactory = requestDispatcher.createHandler(urlPath, request.getMethod(), entityDetails != null);
         if (globHttpRequestHandlerFactory == null) {
             responseChannel.sendResponse(new BasicHttpResponse(403), null, context);
             return;
         }
         globHttpRequestHandler = globHttpRequestHandlerFactory.create(request, entityDetails, responseChannel, context);
+        globHttpRequestHandler.requestRouted(start);
         if (entityDetails == null || entityDetails.getContentLength() == 0) {
             globHttpRequestHandler.callHandler();
         }
@@ -17,6 +17,9 @@ import org.globsframework.core.model.Glob;
 import org.globsframework.core.model.MutableGlob;
 import org.globsframework.core.utils.Ref;
 import org.globsframework.core.utils.Strings;
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.metrics.PrometheusFormat;
+import org.globsframework.http.metrics.RouteMetrics;
 import org.globsframework.http.openapi.model.*;
 import org.globsframework.json.GSonUtils;
 import org.globsframework.json.annottations.IsJsonContent;
@@ -25,6 +28,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
@@ -43,6 +48,9 @@ public class HttpServerRegister {
     private final String serverInfo;
     private Glob openApiDoc;
     private InterceptBuilder interceptBuilder = InterceptBuilder.NULL;
+    private Executor defaultExecutor;
+    private AccessLog accessLog;
+    private volatile RequestDispatcher requestDispatcher;
 
     public HttpServerRegister(String serverInfo) {
         this.serverInfo = serverInfo;
@@ -56,6 +64,21 @@ public class HttpServerRegister {
         }
     }
 
+    // executor of the operations registered without executor (they are called on the io thread by default).
+    public void withDefaultExecutor(Executor executor) {
+        this.defaultExecutor = executor;
+    }
+
+    // access log of the operations without their own access log.
+    public void withAccessLog(AccessLog accessLog) {
+        this.accessLog = accessLog;
+    }
+
+    // all the treatments are called on virtual threads unless an executor is given to the operation.
+    public void withVirtualThreads() {
+        withDefaultExecutor(VirtualThreads.executor());
+    }
+
     public Verb register(String url, GlobType pathParameters) {
         Verb current = verbMap.get(url);
         if (current == null) {
@@ -82,6 +105,44 @@ public class HttpServerRegister {
                 }); //.declareReturnType(OpenApiType.TYPE);
     }
 
+    // metrics of all the registered operations in the Prometheus text format.
+    public void registerMetrics() {
+        register("/metrics", null)
+                .get(null, (body, pathParameters, queryParameters) -> {
+                    List<HttpOperation> operations = new ArrayList<>();
+                    for (Verb verb : verbMap.values()) {
+                        operations.addAll(verb.operations);
+                    }
+                    return CompletableFuture.completedFuture(GlobHttpContent.TYPE.instantiate()
+                            .set(GlobHttpContent.content, HttpMetrics.export(operations).getBytes(StandardCharsets.UTF_8))
+                            .set(GlobHttpContent.mimeType, PrometheusFormat.MIME_TYPE)
+                            .set(GlobHttpContent.charset, "utf-8"));
+                })
+                .withoutCompression();
+    }
+
+    // POST of many requests in one call : {"requests": [{"verb": "GET", "url": "/path?param=1", "body": {...}}]}
+    // the requests are called in parallel on the executor of their operation and the response is
+    // {"responses": [{"status": 200, "body": {...}}]} in the same order.
+    public OperationInfo registerBatch() {
+        return registerBatch("/batch", HttpBatch.DEFAULT_MAX_REQUESTS, HttpBatch.DEFAULT_MAX_CONCURRENCY);
+    }
+
+    public OperationInfo registerBatch(String url, int maxRequests, int maxConcurrency) {
+        return register(url, null)
+                .post(HttpBatch.BatchRequest.TYPE, null,
+                        new HttpBatch(url, () -> requestDispatcher, maxRequests, maxConcurrency))
+                .declareReturnType(HttpBatch.BatchResponse.TYPE);
+    }
+
+    // text/event-stream route of the changes of a SharedDataAccess (see ServerSentEvents).
+    public OperationInfo registerEvents(String url, ServerSentEvents events) {
+        return register(url, null)
+                .getBin(null, null, (body, pathParameters, queryParameters, header) ->
+                        CompletableFuture.completedFuture(events.newConnection()))
+                .withoutCompression();
+    }
+
     public Glob createOpenApiDocByTags(String tag) {
         List<Glob> paths = new ArrayList<>();
         Arrays.stream(openApiDoc.getOrEmpty(OpenApiType.paths)).forEach(path -> {
@@ -508,6 +569,7 @@ public class HttpServerRegister {
 //        if (Strings.isNotEmpty(serverInfo)) {
 //            serverBootstrap.setServerInfo(serverInfo);
 //        }
+        this.requestDispatcher = requestDispatcher;
         serverBootstrap.setRequestRouter((request, context) ->
                 () -> new HttpRequestHttpAsyncServerExchangeTree(requestDispatcher, request, context));
         return serverBootstrap.create();
@@ -602,6 +664,67 @@ public class HttpServerRegister {
 
         OperationInfo withExecutor(Executor executor);
 
+        // run the treatment on its own pool of threads : above maxQueueDepth waiting requests, a 503 is sent at once.
+        // A BoundedExecutor given to withExecutor can be shared by a group of operations.
+        OperationInfo withBoundedExecutor(int threads, int maxQueueDepth);
+
+        // call the treatment on a virtual thread (a thread of a pool before java 21).
+        OperationInfo withVirtualThreads();
+
+        // encode the response while it is sent (chunked) instead of buffering it : the encoder run on
+        // VirtualThreads.executor() as it wait for the io thread.
+        OperationInfo withStreamedResponse(boolean streamedResponse);
+
+        // decode a body received in many chunks while it is received instead of buffering it (default for the
+        // blocking and stream operations). The reader run on VirtualThreads.executor() : each upload in progress
+        // hold one of its threads until the body is read (a stream body is read by the treatment, called on this
+        // thread). Without virtual threads (java 17) slow uploaders can use all the threads of the pool.
+        OperationInfo withIncrementalBody(boolean incrementalBody);
+
+        // json responses of at least minSize bytes are compressed if the client accept gzip or deflate (default 1KB).
+        OperationInfo compressAbove(int minSize);
+
+        OperationInfo withoutCompression();
+
+        // gzip/deflate request bodies larger than maxSize once inflated are rejected with a 413 (default 32MB).
+        OperationInfo withMaxDecompressedBodySize(long maxSize);
+
+        // GET only : send an ETag computed from the encoded response and answer a matching If-None-Match with a 304.
+        OperationInfo withETag();
+
+        // the version is used as (weak) ETag and checked before calling the treatment.
+        OperationInfo withETag(ETagVersionProvider versionProvider);
+
+        // GET only : the encoded responses are kept ttl by url, query parameters and headers, at most maxBytes by operation.
+        // A hit is sent without calling the treatment (nor the executor).
+        OperationInfo withResponseCache(Duration ttl, long maxBytes);
+
+        // GET only : while a call is in progress, the identical requests (url, query parameters and headers) wait for it
+        // and send the same response instead of calling the treatment again.
+        OperationInfo withRequestCoalescing();
+
+        // log the requests of this operation in this access log (instead of the one of the server).
+        OperationInfo withAccessLog(AccessLog accessLog);
+
+        // at most permitsPerSecond requests (and burst at once) are accepted, the others get a 429 with a Retry-After.
+        OperationInfo withRateLimit(double permitsPerSecond, int burst);
+
+        // limit by client (RateLimiter.perRemoteAddress, RateLimiter.perHeader) or shared by a group of operations.
+        OperationInfo withRateLimiter(RateLimiter rateLimiter);
+
+        // the calls in progress are limited to a value adapted from the latency of the treatment (AIMD),
+        // the requests over the limit get a 503 before their body is read.
+        OperationInfo withAdaptiveConcurrency();
+
+        OperationInfo withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter);
+
+        // the response must be sent before timeout from the reception of the request, else a 504 is sent and the
+        // future of the treatment is cancelled. The treatment get the remaining time with Deadline.current().
+        OperationInfo withTimeout(Duration timeout);
+
+        // the client can give a shorter timeout in milliseconds in this header (X-Request-Timeout for example).
+        OperationInfo withTimeoutHeader(String headerName);
+
         void addHeader(String name, String value);
     }
 
@@ -641,67 +764,6 @@ public class HttpServerRegister {
 
     }
 
-    static class StrNode {
-        private final String serverInfo;
-        private SubStrNode[] subStrNodes = new SubStrNode[0];
-        private SubStrNode[] subWithWildCard = new SubStrNode[0];
-
-        StrNode(String serverInfo) {
-            this.serverInfo = serverInfo;
-        }
-
-        public GlobHttpRequestHandlerFactory createRequestHandler(String[] path, String method, String paramStr, boolean hasBody) {
-            for (SubStrNode subStrNode : this.subStrNodes) {
-                if (subStrNode.match(path)) {
-                    return subStrNode.httpRequestHandlerBuilder.create(path, method, paramStr, hasBody);
-                }
-            }
-            return null;
-        }
-
-        public GlobHttpRequestHandlerFactory findAndCreateRequestHandler(String[] path, String method, String paramStr, boolean hasBody) {
-            for (SubStrNode subStrNode : this.subWithWildCard) {
-                if (subStrNode.match(path)) {
-                    return subStrNode.httpRequestHandlerBuilder.create(path, method, paramStr, hasBody);
-                }
-            }
-            return null;
-        }
-
-        public void register(Collection<String> path, GlobHttpRequestHandlerBuilder globHttpRequestHandler) {
-            subStrNodes = Arrays.copyOf(subStrNodes, subStrNodes.length + 1);
-            subStrNodes[subStrNodes.length - 1] = new SubStrNode(path, globHttpRequestHandler);
-        }
-
-        public void registerWildcard(Collection<String> path, GlobHttpRequestHandlerBuilder globHttpRequestHandler) {
-            subWithWildCard = Arrays.copyOf(subWithWildCard, subWithWildCard.length + 1);
-            subWithWildCard[subWithWildCard.length - 1] = new SubStrNode(path, globHttpRequestHandler);
-        }
-    }
-
-    static class SubStrNode {
-        private final String[] path;
-        private final GlobHttpRequestHandlerBuilder httpRequestHandlerBuilder;
-
-        public SubStrNode(Collection<String> path, GlobHttpRequestHandlerBuilder globHttpRequestHandler) {
-            this.path = path.toArray(String[]::new);
-            this.httpRequestHandlerBuilder = globHttpRequestHandler;
-        }
-
-        boolean match(String[] path) {
-            String[] strings = this.path;
-            for (int i = 0, stringsLength = strings.length; i < stringsLength; i++) {
-                String s = strings[i];
-                if (s != null) {
-                    if (!s.equals(path[i])) {
-                        return false;
-                    }
-                }
-            }
-            return true;
-        }
-    }
-
     private static class AncapsulateInterceptBuilder implements InterceptBuilder {
         private final InterceptBuilder interceptBuilder;
         private final InterceptBuilder builder;
@@ -884,6 +946,24 @@ public class HttpServerRegister {
             return new DefaultOperationInfo(operation);
         }
 
+        // the body is a json array or newline delimited json of itemType : the globs are given one by one to the
+        // treatment while the body is received. Called on a virtual thread unless an executor is given.
+        public OperationInfo postStream(GlobType itemType, GlobType queryParameters, GlobType headerType, HttpGlobStreamTreatment httpTreatment) {
+            return postStream(itemType, queryParameters, headerType, JsonValueSplitter.DEFAULT_MAX_ITEM_SIZE, httpTreatment);
+        }
+
+        // an item larger than maxItemSize characters is rejected with a 413 (default 1M).
+        public OperationInfo postStream(GlobType itemType, GlobType queryParameters, GlobType headerType, int maxItemSize,
+                                        HttpGlobStreamTreatment httpTreatment) {
+            DefaultHttpDataOperation operation = new DefaultHttpDataOperation(HttpOp.post, null, queryParameters,
+                    new GlobStreamDataTreatment(itemType, maxItemSize, httpTreatment));
+            operation.withHeader(headerType);
+            operation.withExecutor(VirtualThreads.executor());
+            operation.withIncrementalBody(true);
+            operations.add(operation);
+            return new DefaultOperationInfo(operation);
+        }
+
         public OperationInfo put(GlobType bodyParam, GlobType queryParameters, HttpTreatment httpTreatment) {
             DefaultHttpOperation operation = new DefaultHttpOperation(HttpOp.put, bodyParam, queryParameters, interceptBuilder.create(httpTreatment));
             operations.add(operation);
@@ -923,11 +1003,69 @@ public class HttpServerRegister {
             return new DefaultOperationInfo(operation);
         }
 
+        // the blocking treatments are called on virtual threads (unless an other executor is given).
+        public OperationInfo getBlocking(GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            return blocking(HttpOp.get, null, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo postBlocking(GlobType bodyParam, GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            return blocking(HttpOp.post, bodyParam, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo putBlocking(GlobType bodyParam, GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            return blocking(HttpOp.put, bodyParam, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo patchBlocking(GlobType bodyParam, GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            return blocking(HttpOp.patch, bodyParam, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo deleteBlocking(GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            return blocking(HttpOp.delete, null, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo getBinBlocking(GlobType queryParameters, GlobType headerType, BlockingHttpDataTreatment httpTreatment) {
+            return blocking(HttpOp.get, queryParameters, headerType, httpTreatment);
+        }
+
+        public OperationInfo postBinBlocking(GlobType queryParameters, GlobType headerType, BlockingHttpDataTreatment httpTreatment) {
+            return blocking(HttpOp.post, queryParameters, headerType, httpTreatment);
+        }
+
+        private OperationInfo blocking(HttpOp verb, GlobType bodyParam, GlobType queryParameters, GlobType headerType, BlockingHttpTreatment httpTreatment) {
+            DefaultHttpOperation operation = new DefaultHttpOperation(verb, bodyParam, queryParameters, interceptBuilder.create(
+                    (HttpTreatmentWithHeader) (body, url, query, header) ->
+                            CompletableFuture.completedFuture(httpTreatment.consume(body, url, query, header))));
+            operation.withHeader(headerType);
+            operation.withExecutor(VirtualThreads.executor());
+            operation.withIncrementalBody(true);
+            operations.add(operation);
+            return new DefaultOperationInfo(operation);
+        }
+
+        private OperationInfo blocking(HttpOp verb, GlobType queryParameters, GlobType headerType, BlockingHttpDataTreatment httpTreatment) {
+            DefaultHttpDataOperation operation = new DefaultHttpDataOperation(verb, null, queryParameters,
+                    (body, url, query, header) -> CompletableFuture.completedFuture(httpTreatment.consume(body, url, query, header)));
+            operation.withHeader(headerType);
+            operation.withExecutor(VirtualThreads.executor());
+            operation.withIncrementalBody(true);
+            operations.add(operation);
+            return new DefaultOperationInfo(operation);
+        }
+
         public void addHeader(String name, String value) {
             headers.put(name, value);
         }
 
         HttpReceiver complete() {
+            for (HttpOperation operation : operations) {
+                if (defaultExecutor != null && operation.getExecutor() == HttpOperation.DIRECT_EXECUTOR) {
+                    operation.withExecutor(defaultExecutor);
+                }
+                if (accessLog != null && operation.getAccessLog() == null && operation instanceof MutableHttpDataOperation mutable) {
+                    mutable.withAccessLog(accessLog);
+                }
+            }
             DefaultHttpReceiver defaultHttpReceiver = new DefaultHttpReceiver(url, pathParameters, operations.toArray(new HttpOperation[0]));
             headers.forEach(defaultHttpReceiver::addHeader);
             return defaultHttpReceiver;
@@ -938,6 +1076,7 @@ public class HttpServerRegister {
 
             public DefaultOperationInfo(MutableHttpDataOperation operation) {
                 this.operation = operation;
+                operation.withMetrics(new RouteMetrics(operation.verb().name().toUpperCase(), url));
             }
 
             public OperationInfo withSensitiveData(boolean hasSensitiveData) {
@@ -970,6 +1109,96 @@ public class HttpServerRegister {
                 return this;
             }
 
+            public OperationInfo withBoundedExecutor(int threads, int maxQueueDepth) {
+                operation.withExecutor(new BoundedExecutor(operation.verb() + " " + url, threads, maxQueueDepth));
+                return this;
+            }
+
+            public OperationInfo withVirtualThreads() {
+                operation.withExecutor(VirtualThreads.executor());
+                return this;
+            }
+
+            public OperationInfo withStreamedResponse(boolean streamedResponse) {
+                operation.withStreamedResponse(streamedResponse);
+                return this;
+            }
+
+            public OperationInfo withIncrementalBody(boolean incrementalBody) {
+                operation.withIncrementalBody(incrementalBody);
+                return this;
+            }
+
+            public OperationInfo compressAbove(int minSize) {
+                operation.withCompression(true, minSize);
+                return this;
+            }
+
+            public OperationInfo withoutCompression() {
+                operation.withCompression(false, Integer.MAX_VALUE);
+                return this;
+            }
+
+            public OperationInfo withMaxDecompressedBodySize(long maxSize) {
+                operation.withMaxDecompressedBodySize(maxSize);
+                return this;
+            }
+
+            public OperationInfo withETag() {
+                operation.withETag(null);
+                return this;
+            }
+
+            public OperationInfo withETag(ETagVersionProvider versionProvider) {
+                operation.withETag(versionProvider);
+                return this;
+            }
+
+            public OperationInfo withResponseCache(Duration ttl, long maxBytes) {
+                operation.withResponseCache(new ResponseCache(operation.verb() + " " + url, ttl, maxBytes));
+                return this;
+            }
+
+            public OperationInfo withRequestCoalescing() {
+                operation.withSingleFlight(new SingleFlight());
+                return this;
+            }
+
+            public OperationInfo withAccessLog(AccessLog accessLog) {
+                operation.withAccessLog(accessLog);
+                return this;
+            }
+
+            public OperationInfo withRateLimit(double permitsPerSecond, int burst) {
+                operation.withRateLimiter(RateLimiter.perRoute(permitsPerSecond, burst));
+                return this;
+            }
+
+            public OperationInfo withRateLimiter(RateLimiter rateLimiter) {
+                operation.withRateLimiter(rateLimiter);
+                return this;
+            }
+
+            public OperationInfo withAdaptiveConcurrency() {
+                operation.withConcurrencyLimiter(new ConcurrencyLimiter());
+                return this;
+            }
+
+            public OperationInfo withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter) {
+                operation.withConcurrencyLimiter(concurrencyLimiter);
+                return this;
+            }
+
+            public OperationInfo withTimeout(Duration timeout) {
+                operation.withTimeout(timeout.toNanos());
+                return this;
+            }
+
+            public OperationInfo withTimeoutHeader(String headerName) {
+                operation.withTimeoutHeader(headerName);
+                return this;
+            }
+
             public void addHeader(String name, String value) {
                 operation.addHeader(name, value);
             }
@@ -0,0 +1,125 @@
+package org.globsframework.http;
+
+import java.io.IOException;
+import java.io.Reader;
+
+// Split a json body in its top level objects without decoding them : the elements of an array ([{..}, {..}])
+// or the objects separated by new lines (ndjson). Only the current object is kept in memory : an object
+// larger than maxItemSize characters is rejected with a 413.
+class JsonValueSplitter {
+    static final int DEFAULT_MAX_ITEM_SIZE = 1024 * 1024;
+    private final Reader reader;
+    private final int maxItemSize;
+    private final char[] buffer = new char[8192];
+    private final StringBuilder value = new StringBuilder();
+    private int position;
+    private int limit;
+    private boolean started;
+    private boolean inArray;
+    private boolean ended;
+
+    JsonValueSplitter(Reader reader, int maxItemSize) {
+        this.reader = reader;
+        this.maxItemSize = maxItemSize;
+    }
+
+    // the next object or null at the end of the body.
+    String next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        int c = skipWhitespaces();
+        if (!started) {
+            started = true;
+            if (c == '[') {
+                inArray = true;
+                c = skipWhitespaces();
+                if (c == ']') {
+                    return end();
+                }
+            }
+        } else if (inArray) {
+            if (c == ']') {
+                return end();
+            }
+            if (c != ',') {
+                throw invalid("expecting ',' or ']'", c);
+            }
+            c = skipWhitespaces();
+        }
+        if (c == -1) {
+            if (inArray) {
+                throw new HttpException(400, "Unterminated json array");
+            }
+            ended = true;
+            return null;
+        }
+        if (c != '{') {
+            throw invalid("expecting a json object", c);
+        }
+        value.setLength(0);
+        int depth = 0;
+        boolean inString = false;
+        boolean escaped = false;
+        while (true) {
+            if (c == -1) {
+                throw new HttpException(400, "Unterminated json object");
+            }
+            if (value.length() == maxItemSize) {
+                throw new HttpException(413, "Json object larger than " + maxItemSize + " characters");
+            }
+            value.append((char) c);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+            } else if (c == '"') {
+                inString = true;
+            } else if (c == '{' || c == '[') {
+                depth++;
+            } else if (c == '}' || c == ']') {
+                if (--depth == 0) {
+                    return value.toString();
+                }
+            }
+            c = read();
+        }
+    }
+
+    private String end() throws IOException {
+        ended = true;
+        int c = skipWhitespaces();
+        if (c != -1) {
+            throw invalid("unexpected data after the json array", c);
+        }
+        return null;
+    }
+
+    private int skipWhitespaces() throws IOException {
+        int c = read();
+        while (c == ' ' || c == '\n' || c == '\r' || c == '\t') {
+            c = read();
+        }
+        return c;
+    }
+
+    private int read() throws IOException {
+        if (position == limit) {
+            int read = reader.read(buffer, 0, buffer.length);
+            if (read <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = read;
+        }
+        return buffer[position++];
+    }
+
+    private static HttpException invalid(String message, int c) {
+        return new HttpException(400, "Invalid json body : " + message + (c == -1 ? " at the end" : " got '" + (char) c + "'"));
+    }
+}
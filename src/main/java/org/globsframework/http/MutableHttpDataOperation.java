@@ -1,6 +1,8 @@
 package org.globsframework.http;
 
 import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.http.accesslog.AccessLog;
+import org.globsframework.http.metrics.RouteMetrics;
 
 import java.util.concurrent.Executor;
 
@@ -19,5 +21,31 @@ public interface MutableHttpDataOperation extends HttpOperation {
 
     void withSensitiveData(boolean hasSensitiveData);
 
+    void withStreamedResponse(boolean streamedResponse);
+
+    void withIncrementalBody(boolean incrementalBody);
+
+    void withCompression(boolean enabled, int minSize);
+
+    void withMaxDecompressedBodySize(long maxSize);
+
+    void withETag(ETagVersionProvider versionProvider);
+
+    void withResponseCache(ResponseCache responseCache);
+
+    void withSingleFlight(SingleFlight singleFlight);
+
+    void withMetrics(RouteMetrics metrics);
+
+    void withAccessLog(AccessLog accessLog);
+
+    void withRateLimiter(RateLimiter rateLimiter);
+
+    void withConcurrencyLimiter(ConcurrencyLimiter concurrencyLimiter);
+
+    void withTimeout(long timeoutNanos);
+
+    void withTimeoutHeader(String timeoutHeader);
+
     void addHeader(String name, String value);
 }
@@ -0,0 +1,110 @@
+package org.globsframework.http;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Flow;
+
+// Blocking iterator over a Flow.Publisher : the publisher is subscribed on the first hasNext and the items are
+// requested by half of prefetch as they are read, so it is never more than prefetch items ahead of the reader.
+class PublisherIterator<T> implements Iterator<T>, Flow.Subscriber<T>, AutoCloseable {
+    private static final Object COMPLETED = new Object();
+    private final Flow.Publisher<T> publisher;
+    private final int prefetch;
+    private final ArrayBlockingQueue<Object> queue;
+    private volatile Flow.Subscription subscription;
+    private volatile boolean closed;
+    private boolean subscribed;
+    private Object next;
+    private int read;
+
+    PublisherIterator(Flow.Publisher<T> publisher, int prefetch) {
+        this.publisher = publisher;
+        this.prefetch = prefetch;
+        this.queue = new ArrayBlockingQueue<>(prefetch + 1); // + the completion or the error
+    }
+
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (this.subscription != null || closed) {
+            subscription.cancel();
+            return;
+        }
+        this.subscription = subscription;
+        subscription.request(prefetch);
+    }
+
+    public void onNext(T item) {
+        if (closed) {
+            return;
+        }
+        if (!queue.offer(item)) {
+            subscription.cancel();
+            queue.clear();
+            queue.offer(new Failure(new IllegalStateException("More items published than requested")));
+        }
+    }
+
+    public void onError(Throwable throwable) {
+        queue.offer(new Failure(throwable));
+    }
+
+    public void onComplete() {
+        queue.offer(COMPLETED);
+    }
+
+    public boolean hasNext() {
+        if (closed && next == null) {
+            return false;
+        }
+        if (next == null) {
+            if (!subscribed) {
+                subscribed = true;
+                publisher.subscribe(this);
+            }
+            try {
+                next = queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CompletionException(e);
+            }
+        }
+        if (next instanceof Failure failure) {
+            throw new CompletionException(failure.cause());
+        }
+        return next != COMPLETED;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = (T) next;
+        next = null;
+        if (++read >= Math.max(1, prefetch / 2)) {
+            subscription.request(read);
+            read = 0;
+        }
+        return item;
+    }
+
+    // true if the next item can be read without waiting for the publisher.
+    boolean hasAvailable() {
+        return next != null || !queue.isEmpty();
+    }
+
+    // can be called by another thread : a reader waiting for the publisher get the end of the items.
+    public void close() {
+        closed = true;
+        Flow.Subscription current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        queue.clear();
+        queue.offer(COMPLETED);
+    }
+
+    private record Failure(Throwable cause) {
+    }
+}
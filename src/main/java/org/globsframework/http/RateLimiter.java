@@ -0,0 +1,180 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.protocol.HttpContext;
+import org.apache.hc.core5.http.protocol.HttpCoreContext;
+import org.globsframework.core.metamodel.annotations.FieldName;
+import org.globsframework.core.metamodel.fields.Field;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Token buckets of an operation (or a group of operations), one by route or one by client key.
+// A bucket is a single 'theoretical arrival time' updated with a CAS : a request is accepted if the bucket
+// would not be more than burst requests in advance. Requests over the limit get a 429 before their body is read.
+// Idle buckets are full again : they are removed when the map reach maxKeys (at most once per PURGE_INTERVAL).
+// While the map is full, the new keys share an overflow bucket with its own limit (withOverflowLimit, by default
+// DEFAULT_OVERFLOW_FACTOR times the limit of a key) : a key flood does not take the permits of the known keys.
+public class RateLimiter {
+    public static final int DEFAULT_MAX_KEYS = 10_000;
+    public static final int DEFAULT_OVERFLOW_FACTOR = 10;
+    private static final long PURGE_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+    private final KeyExtractor keyExtractor;
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final int maxKeys;
+    private final Bucket routeBucket = new Bucket();
+    private final Bucket overflowBucket = new Bucket();
+    private final ConcurrentHashMap<String, Bucket> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextPurge = new AtomicLong(System.nanoTime());
+    private final LongAdder rejected = new LongAdder();
+    private volatile long overflowIntervalNanos;
+    private volatile long overflowToleranceNanos;
+
+    public interface KeyExtractor {
+        // null : the request use the shared bucket.
+        String key(HttpRequest request, HttpContext context);
+    }
+
+    public RateLimiter(double permitsPerSecond, int burst, KeyExtractor keyExtractor, int maxKeys) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Expecting a positive rate and burst : " + permitsPerSecond + "/s burst " + burst);
+        }
+        this.keyExtractor = keyExtractor;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.toleranceNanos = intervalNanos * burst;
+        this.maxKeys = maxKeys;
+        this.overflowIntervalNanos = intervalNanos / DEFAULT_OVERFLOW_FACTOR;
+        this.overflowToleranceNanos = toleranceNanos;
+    }
+
+    // limit shared by the keys that do not fit in maxKeys.
+    public RateLimiter withOverflowLimit(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Expecting a positive rate and burst : " + permitsPerSecond + "/s burst " + burst);
+        }
+        this.overflowIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.overflowToleranceNanos = overflowIntervalNanos * burst;
+        return this;
+    }
+
+    public static RateLimiter perRoute(double permitsPerSecond, int burst) {
+        return new RateLimiter(permitsPerSecond, burst, null, 0);
+    }
+
+    public static RateLimiter perRemoteAddress(double permitsPerSecond, int burst) {
+        return new RateLimiter(permitsPerSecond, burst, RateLimiter::remoteAddress, DEFAULT_MAX_KEYS);
+    }
+
+    // the key is the value of the header of this field of the header type (an api key for example).
+    public static RateLimiter perHeader(Field headerField, double permitsPerSecond, int burst) {
+        String name = FieldName.getName(headerField);
+        return new RateLimiter(permitsPerSecond, burst, (request, context) -> {
+            Header header = request.getFirstHeader(name);
+            return header != null ? header.getValue() : null;
+        }, DEFAULT_MAX_KEYS);
+    }
+
+    static String remoteAddress(HttpRequest request, HttpContext context) {
+        HttpCoreContext coreContext = HttpCoreContext.cast(context);
+        if (coreContext == null || coreContext.getEndpointDetails() == null) {
+            return null;
+        }
+        SocketAddress address = coreContext.getEndpointDetails().getRemoteAddress();
+        if (address instanceof InetSocketAddress inetSocketAddress) {
+            return inetSocketAddress.getAddress() != null ? inetSocketAddress.getAddress().getHostAddress() : inetSocketAddress.getHostString();
+        }
+        return address != null ? address.toString() : null;
+    }
+
+    public boolean isKeyed() {
+        return keyExtractor != null;
+    }
+
+    // 0 if the request is accepted else the nanoseconds to wait before a retry.
+    public long tryAcquire() {
+        return tryAcquire(routeBucket, System.nanoTime(), intervalNanos, toleranceNanos);
+    }
+
+    public long tryAcquire(HttpRequest request, HttpContext context) {
+        if (keyExtractor == null) {
+            return tryAcquire();
+        }
+        long now = System.nanoTime();
+        Bucket bucket = bucket(keyExtractor.key(request, context), now);
+        if (bucket == overflowBucket) {
+            return tryAcquire(bucket, now, overflowIntervalNanos, overflowToleranceNanos);
+        }
+        return tryAcquire(bucket, now, intervalNanos, toleranceNanos);
+    }
+
+    private long tryAcquire(Bucket bucket, long now, long intervalNanos, long toleranceNanos) {
+        while (true) {
+            long theoreticalArrival = bucket.theoreticalArrival.get();
+            long next = Math.max(theoreticalArrival, now) + intervalNanos;
+            long wait = next - toleranceNanos - now;
+            if (wait > 0) {
+                rejected.increment();
+                return wait;
+            }
+            if (bucket.theoreticalArrival.compareAndSet(theoreticalArrival, next)) {
+                return 0;
+            }
+        }
+    }
+
+    private Bucket bucket(String key, long now) {
+        if (key == null) {
+            return routeBucket;
+        }
+        Bucket bucket = buckets.get(key);
+        if (bucket != null) {
+            return bucket;
+        }
+        if (buckets.size() >= maxKeys) {
+            purge(now);
+            if (buckets.size() >= maxKeys) {
+                return overflowBucket;
+            }
+        }
+        return buckets.computeIfAbsent(key, k -> new Bucket(now));
+    }
+
+    // remove the buckets that are full again (not used for a while) : the scan of the map is done by a single
+    // thread at most once per PURGE_INTERVAL, not for each new key.
+    private void purge(long now) {
+        long next = nextPurge.get();
+        if (now - next >= 0 && nextPurge.compareAndSet(next, now + PURGE_INTERVAL)) {
+            buckets.values().removeIf(bucket -> bucket.theoreticalArrival.get() <= now);
+        }
+    }
+
+    public static int toRetryAfterSeconds(long waitNanos) {
+        return (int) Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    public int getKeys() {
+        return buckets.size();
+    }
+
+    private static class Bucket {
+        private final AtomicLong theoreticalArrival;
+
+        Bucket() {
+            this(System.nanoTime());
+        }
+
+        Bucket(long now) {
+            theoreticalArrival = new AtomicLong(now);
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package org.globsframework.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+// Content-Encoding of the request body : gzip and deflate are inflated while read.
+class RequestBodyDecoding {
+    public static final long DEFAULT_MAX_DECOMPRESSED_SIZE = 32 * 1024 * 1024;
+
+    static boolean isIdentity(String contentEncoding) {
+        return contentEncoding == null || contentEncoding.isBlank() || contentEncoding.trim().equalsIgnoreCase("identity");
+    }
+
+    // the body to read : the raw stream or a decompressing stream failing with a 413 after maxSize bytes.
+    static InputStream decode(InputStream raw, String contentEncoding, long maxSize) throws IOException {
+        if (isIdentity(contentEncoding)) {
+            return raw;
+        }
+        String encoding = contentEncoding.trim().toLowerCase();
+        return switch (encoding) {
+            case "gzip", "x-gzip" -> new SizeLimitedInputStream(new GZIPInputStream(raw, 8192), maxSize);
+            case "deflate" -> new SizeLimitedInputStream(new InflaterInputStream(raw), maxSize);
+            default -> throw new HttpException(415, "Unsupported Content-Encoding " + contentEncoding);
+        };
+    }
+
+    // the first HttpException in the causes (decoders wrap the exceptions thrown by the stream).
+    static Throwable httpCause(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpException) {
+                return cause;
+            }
+        }
+        return throwable;
+    }
+
+    static class SizeLimitedInputStream extends FilterInputStream {
+        private final long maxSize;
+        private long count;
+
+        SizeLimitedInputStream(InputStream in, long maxSize) {
+            super(in);
+            this.maxSize = maxSize;
+        }
+
+        public int read() throws IOException {
+            int read = super.read();
+            if (read >= 0) {
+                check(1);
+            }
+            return read;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int read = super.read(b, off, len);
+            if (read > 0) {
+                check(read);
+            }
+            return read;
+        }
+
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            check(skipped);
+            return skipped;
+        }
+
+        private void check(long read) {
+            count += read;
+            if (count > maxSize) {
+                throw new HttpException(413, "Request body larger than " + maxSize + " bytes once decompressed");
+            }
+        }
+    }
+}
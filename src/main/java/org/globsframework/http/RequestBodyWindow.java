@@ -0,0 +1,64 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.nio.CapacityChannel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+
+// Flow control of a request body read by the treatment : at most size bytes are received but not yet read.
+// The capacity is given back to the peer only when the reader consume the data.
+class RequestBodyWindow {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestBodyWindow.class);
+    private final int size;
+    private int unread;
+    private CapacityChannel waitingChannel;
+    private boolean released;
+
+    RequestBodyWindow(int size) {
+        this.size = size;
+    }
+
+    // io thread
+    synchronized void received(int count) {
+        if (!released) {
+            unread += count;
+        }
+    }
+
+    // reader thread
+    synchronized void read(int count) {
+        unread -= count;
+        if (waitingChannel != null && unread <= size / 2) {
+            grant(waitingChannel, size - unread);
+        }
+    }
+
+    // io thread : the peer window is exhausted.
+    synchronized void updateCapacity(CapacityChannel capacityChannel) {
+        int free = size - unread;
+        if (released || free > 0) {
+            grant(capacityChannel, released ? size : free);
+        } else {
+            waitingChannel = capacityChannel;
+        }
+    }
+
+    // nobody will read anymore : the remaining data is accepted and dropped.
+    synchronized void release() {
+        released = true;
+        unread = 0;
+        if (waitingChannel != null) {
+            grant(waitingChannel, size);
+        }
+    }
+
+    private void grant(CapacityChannel capacityChannel, int increment) {
+        waitingChannel = null;
+        try {
+            capacityChannel.update(increment);
+        } catch (IOException e) {
+            LOGGER.error("Fail to update request capacity", e);
+        }
+    }
+}
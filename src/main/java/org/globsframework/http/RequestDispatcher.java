@@ -1,11 +1,15 @@
 package org.globsframework.http;
 
-import java.util.Arrays;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import java.util.Collection;
+import java.util.Iterator;
 
 class RequestDispatcher {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RequestDispatcher.class);
     private final String serverInfo;
-    private HttpServerRegister.StrNode[] nodes = new HttpServerRegister.StrNode[0];
+    private final PathNode root = new PathNode();
 
     public RequestDispatcher(String serverInfo) {
         this.serverInfo = serverInfo;
@@ -34,33 +38,175 @@ class RequestDispatcher {
 //        HttpRequestHttpAsyncServerExchangeTree.LOGGER.warn(serverInfo + " : Unexpected path : " + urlStr);
 //    }
 
-    public GlobHttpRequestHandlerFactory createHandler(String[] path, String method, String paramStr, boolean hasBody) {
-        int min = Math.min(path.length, nodes.length - 1);
-        GlobHttpRequestHandlerFactory requestHandler = nodes[min].createRequestHandler(path, method, paramStr, hasBody);
-        if (requestHandler != null) {
-            return requestHandler;
-        }
-        for (int pos = min; pos >= 0; pos--) {
-            requestHandler = nodes[pos].findAndCreateRequestHandler(path, method, paramStr, hasBody);
-            if (requestHandler != null) {
-                return requestHandler;
-            }
+    public GlobHttpRequestHandlerFactory createHandler(UrlPath path, String method, boolean hasBody) {
+        GlobHttpRequestHandlerBuilder requestHandlerBuilder = find(path);
+        if (requestHandlerBuilder != null) {
+            return requestHandlerBuilder.create(path, method, path.query(), hasBody);
         }
         return null;
     }
 
+    GlobHttpRequestHandlerBuilder find(UrlPath path) {
+        GlobHttpRequestHandlerBuilder requestHandlerBuilder = root.findExact(path, 0);
+        if (requestHandlerBuilder != null) {
+            return requestHandlerBuilder;
+        }
+        WildcardMatch wildcardMatch = new WildcardMatch();
+        root.findWildcard(path, 0, wildcardMatch);
+        return wildcardMatch.builder;
+    }
+
     public void register(Collection<String> path, GlobHttpRequestHandlerBuilder globHttpRequestHandler) {
-        int length = nodes.length;
-        if (length <= path.size()) {
-            nodes = Arrays.copyOf(nodes, path.size() + 1);
-            for (; length < nodes.length; length++) {
-                nodes[length] = new HttpServerRegister.StrNode(serverInfo);
-            }
+        PathNode node = root;
+        Iterator<String> iterator = path.iterator();
+        int remaining = path.size();
+        boolean withWildcard = globHttpRequestHandler.hasWildcardAtEnd();
+        // the wildcard segment is the last one of the path : it is attached to its parent node.
+        while (remaining > (withWildcard ? 1 : 0)) {
+            node = node.getOrCreateChild(iterator.next());
+            remaining--;
         }
-        if (globHttpRequestHandler.hasWildcardAtEnd()) {
-            nodes[path.size()].registerWildcard(path, globHttpRequestHandler);
+        if (withWildcard) {
+            if (node.wildcard != null) {
+                LOGGER.warn("{} : wildcard path {} already registered, ignored", serverInfo, path);
+                return;
+            }
+            node.wildcard = globHttpRequestHandler;
         } else {
-            nodes[path.size()].register(path, globHttpRequestHandler);
+            if (node.handler != null) {
+                LOGGER.warn("{} : path {} already registered, ignored", serverInfo, path);
+                return;
+            }
+            node.handler = globHttpRequestHandler;
+        }
+    }
+
+    // one node per path segment : literal segments are resolved with a hash lookup and path parameters share a
+    // single edge, so the lookup cost depends on the depth of the url, not on the number of registered urls.
+    // Literals are tried first, the parameter edge is only walked if the literal branch does not match.
+    static class PathNode {
+        private final SegmentMap literals = new SegmentMap();
+        private PathNode parameter;
+        private GlobHttpRequestHandlerBuilder handler;
+        private GlobHttpRequestHandlerBuilder wildcard;
+
+        PathNode getOrCreateChild(String segment) {
+            if (segment == null) {
+                if (parameter == null) {
+                    parameter = new PathNode();
+                }
+                return parameter;
+            }
+            PathNode node = literals.get(segment);
+            if (node == null) {
+                node = new PathNode();
+                literals.put(segment, node);
+            }
+            return node;
+        }
+
+        GlobHttpRequestHandlerBuilder findExact(UrlPath path, int index) {
+            if (index == path.size()) {
+                return handler;
+            }
+            PathNode literal = literals.get(path, index);
+            if (literal != null) {
+                GlobHttpRequestHandlerBuilder found = literal.findExact(path, index + 1);
+                if (found != null) {
+                    return found;
+                }
+            }
+            return parameter != null ? parameter.findExact(path, index + 1) : null;
+        }
+
+        // keep the deepest wildcard (longest registered prefix) as the previous dispatcher did.
+        void findWildcard(UrlPath path, int index, WildcardMatch match) {
+            if (index >= path.size()) {
+                return;
+            }
+            if (wildcard != null && index > match.depth) {
+                match.depth = index;
+                match.builder = wildcard;
+            }
+            PathNode literal = literals.get(path, index);
+            if (literal != null) {
+                literal.findWildcard(path, index + 1, match);
+            }
+            if (parameter != null) {
+                parameter.findWildcard(path, index + 1, match);
+            }
+        }
+    }
+
+    static class WildcardMatch {
+        int depth = -1;
+        GlobHttpRequestHandlerBuilder builder;
+    }
+
+    // open addressing table looked up directly with a segment of the request path.
+    static class SegmentMap {
+        private String[] keys = new String[4];
+        private int[] hashes = new int[4];
+        private PathNode[] values = new PathNode[4];
+        private int size;
+
+        PathNode get(String key) {
+            int mask = keys.length - 1;
+            int hash = key.hashCode();
+            for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && keys[i].equals(key)) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        PathNode get(UrlPath path, int index) {
+            if (size == 0) {
+                return null;
+            }
+            int mask = keys.length - 1;
+            int hash = path.hash(index);
+            for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask) {
+                if (hashes[i] == hash && path.segmentEquals(index, keys[i])) {
+                    return values[i];
+                }
+            }
+            return null;
+        }
+
+        void put(String key, PathNode value) {
+            if ((size + 1) * 2 > keys.length) {
+                String[] oldKeys = keys;
+                PathNode[] oldValues = values;
+                keys = new String[oldKeys.length * 2];
+                hashes = new int[oldKeys.length * 2];
+                values = new PathNode[oldKeys.length * 2];
+                size = 0;
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldKeys[i] != null) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value);
+        }
+
+        private void insert(String key, PathNode value) {
+            int mask = keys.length - 1;
+            int hash = key.hashCode();
+            int i = hash & mask;
+            while (keys[i] != null) {
+                if (keys[i].equals(key)) {
+                    values[i] = value;
+                    return;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            hashes[i] = hash;
+            values[i] = value;
+            size++;
         }
     }
 }
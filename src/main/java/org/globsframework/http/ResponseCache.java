@@ -0,0 +1,166 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpRequest;
+import org.apache.hc.core5.http.impl.BasicEntityDetails;
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.fields.Field;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Encoded responses of a GET operation by (path with its query, declared headers) and negotiated representation.
+// Entries expire after ttl and the least recently used are evicted above maxBytes.
+public class ResponseCache {
+    private final String route;
+    private final long ttlNanos;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ResponseCache(String route, Duration ttl, long maxBytes) {
+        this.route = route;
+        this.ttlNanos = ttl.toNanos();
+        this.maxBytes = maxBytes;
+    }
+
+    // the key of the response : binary and compression give different entries.
+    static String key(HttpRequest request, GlobType headerType, boolean compressionEnabled) {
+        return key(request, headerType) + representation(request, compressionEnabled);
+    }
+
+    // the raw path (url and query) and the values of the headers of the header type, not the decoded globs :
+    // the same parameters in another order give another entry.
+    static String key(HttpRequest request, GlobType headerType) {
+        StringBuilder builder = new StringBuilder(request.getPath()).append('\n');
+        if (headerType != null) {
+            for (Field field : headerType.getFields()) {
+                for (Header header : request.getHeaders(field.getName())) {
+                    builder.append(header.getValue()).append('\n');
+                }
+                builder.append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    // the negotiated format and content encoding.
+    static String representation(HttpRequest request, boolean compressionEnabled) {
+        String encoding = compressionEnabled ? ResponseCompression.negotiate(request) : null;
+        return (GlobBinaryFormat.accept(request) ? "b" : "j") + (encoding != null ? encoding : "");
+    }
+
+    // null if absent or expired.
+    Cached get(String key) {
+        long now = System.nanoTime();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && now - entry.createdAt() < ttlNanos) {
+                hits.increment();
+                return entry.response();
+            }
+            if (entry != null) {
+                remove(key, entry);
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    // copy the buffers unless the response is larger than the cache.
+    void store(String key, Iterable<ByteBuffer> buffers, long size, ContentType contentType, String contentEncoding, String etag) {
+        if (size <= maxBytes) {
+            put(key, Cached.copyOf(buffers, size, contentType, contentEncoding, etag));
+        }
+    }
+
+    void put(String key, Cached response) {
+        Entry entry = new Entry(response, System.nanoTime());
+        synchronized (this) {
+            Entry previous = entries.put(key, entry);
+            if (previous != null) {
+                bytes -= previous.response().data().length;
+            }
+            bytes += response.data().length;
+            Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator();
+            while (bytes > maxBytes && iterator.hasNext()) {
+                Map.Entry<String, Entry> eldest = iterator.next();
+                iterator.remove();
+                bytes -= eldest.getValue().response().data().length;
+                evictions.increment();
+            }
+        }
+    }
+
+    private void remove(String key, Entry entry) {
+        entries.remove(key);
+        bytes -= entry.response().data().length;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getHitRatio() {
+        long hit = hits.sum();
+        long total = hit + misses.sum();
+        return total == 0 ? 0. : (double) hit / total;
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public synchronized long getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    private record Entry(Cached response, long createdAt) {
+    }
+
+    // an encoded response : the data is shared by all the hits and must not be modified.
+    record Cached(byte[] data, ContentType contentType, String contentEncoding, String etag) {
+        static Cached copyOf(Iterable<ByteBuffer> buffers, long size, ContentType contentType, String contentEncoding, String etag) {
+            byte[] data = new byte[Math.toIntExact(size)];
+            int offset = 0;
+            for (ByteBuffer buffer : buffers) {
+                ByteBuffer duplicate = buffer.duplicate();
+                int length = duplicate.remaining();
+                duplicate.get(data, offset, length);
+                offset += length;
+            }
+            return new Cached(data, contentType, contentEncoding, etag);
+        }
+
+        EntityDetails entityDetails() {
+            return contentEncoding == null ? new BasicEntityDetails(data.length, contentType) :
+                    new ResponseCompression.EncodedEntityDetails(data.length, contentType, contentEncoding);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.EntityDetails;
+import org.apache.hc.core5.http.Header;
+import org.apache.hc.core5.http.HttpHeaders;
+import org.apache.hc.core5.http.HttpRequest;
+import org.globsframework.http.streams.MultiBufferOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+// gzip / deflate encoding of the responses negotiated with Accept-Encoding.
+public class ResponseCompression {
+    public static final String GZIP = "gzip";
+    public static final String DEFLATE = "deflate";
+    public static final int DEFAULT_MIN_SIZE = 1024;
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    private static final LongAdder compressedResponses = new LongAdder();
+    private static final LongAdder uncompressedBytes = new LongAdder();
+    private static final LongAdder compressedBytes = new LongAdder();
+    private static final LongAdder compressionNanos = new LongAdder();
+
+    private ResponseCompression() {
+    }
+
+    // gzip, deflate or null (identity) from the Accept-Encoding header of the request.
+    public static String negotiate(HttpRequest request) {
+        Header[] headers = request.getHeaders(HttpHeaders.ACCEPT_ENCODING);
+        if (headers == null || headers.length == 0) {
+            return null;
+        }
+        // -1 : not listed, * apply only to the codings not listed.
+        double gzip = -1;
+        double deflate = -1;
+        double any = -1;
+        for (Header header : headers) {
+            for (String element : header.getValue().split(",")) {
+                String[] parts = element.split(";");
+                String coding = parts[0].trim().toLowerCase();
+                double quality = GlobHttpUtils.quality(parts);
+                switch (coding) {
+                    case GZIP, "x-gzip" -> gzip = Math.max(gzip, quality);
+                    case DEFLATE -> deflate = Math.max(deflate, quality);
+                    case "*" -> any = quality;
+                }
+            }
+        }
+        if (any >= 0) {
+            gzip = gzip < 0 ? any : gzip;
+            deflate = deflate < 0 ? any : deflate;
+        }
+        if (gzip > 0 && gzip >= deflate) {
+            return GZIP;
+        }
+        return deflate > 0 ? DEFLATE : null;
+    }
+
+    // compress the (flipped) buffers in out : the input buffers are not modified.
+    public static void compress(List<ByteBuffer> data, long size, String encoding, MultiBufferOutputStream out) throws IOException {
+        long start = System.nanoTime();
+        boolean gzip = GZIP.equals(encoding);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+        try {
+            CRC32 crc = gzip ? new CRC32() : null;
+            if (gzip) {
+                out.write(GZIP_HEADER);
+            }
+            for (ByteBuffer buffer : data) {
+                ByteBuffer input = buffer.duplicate();
+                if (crc != null) {
+                    crc.update(input.duplicate());
+                }
+                deflater.setInput(input);
+                out.deflate(deflater, false);
+            }
+            out.deflate(deflater, true);
+            if (crc != null) {
+                writeIntLE(out, (int) crc.getValue());
+                writeIntLE(out, (int) size);
+            }
+        } finally {
+            deflater.end();
+        }
+        out.close();
+        compressionNanos.add(System.nanoTime() - start);
+        compressedResponses.increment();
+        uncompressedBytes.add(size);
+        compressedBytes.add(out.size());
+    }
+
+    // wrap a streamed response : the sizes and the compression time are recorded when the stream is closed.
+    public static OutputStream wrap(OutputStream out, String encoding) throws IOException {
+        compressedResponses.increment();
+        return new CompressingOutputStream(out, GZIP.equals(encoding));
+    }
+
+    private static void writeIntLE(OutputStream out, int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >> 8) & 0xff);
+        out.write((value >> 16) & 0xff);
+        out.write((value >> 24) & 0xff);
+    }
+
+    public static long getCompressedResponses() {
+        return compressedResponses.sum();
+    }
+
+    public static long getUncompressedBytes() {
+        return uncompressedBytes.sum();
+    }
+
+    public static long getCompressedBytes() {
+        return compressedBytes.sum();
+    }
+
+    // compressed size / original size of the compressed responses.
+    public static double getCompressionRatio() {
+        long uncompressed = uncompressedBytes.sum();
+        return uncompressed == 0 ? 1. : (double) compressedBytes.sum() / uncompressed;
+    }
+
+    public static long getCompressionNanos() {
+        return compressionNanos.sum();
+    }
+
+    // gzip or deflate stream owning its deflater : flush send the data compressed so far (sync flush) and close
+    // end the deflater. Only the time spent in the deflater is counted, not the wait on the output.
+    private static class CompressingOutputStream extends OutputStream {
+        private final OutputStream out;
+        private final Deflater deflater;
+        private final CRC32 crc;
+        private final byte[] buffer = new byte[8192];
+        private final byte[] single = new byte[1];
+        private long written;
+        private long nanos;
+        private boolean closed;
+
+        CompressingOutputStream(OutputStream out, boolean gzip) throws IOException {
+            this.out = out;
+            this.deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, gzip);
+            this.crc = gzip ? new CRC32() : null;
+            if (gzip) {
+                out.write(GZIP_HEADER);
+                written += GZIP_HEADER.length;
+            }
+        }
+
+        public void write(int b) throws IOException {
+            single[0] = (byte) b;
+            write(single, 0, 1);
+        }
+
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (crc != null) {
+                crc.update(b, off, len);
+            }
+            deflater.setInput(b, off, len);
+            while (!deflater.needsInput()) {
+                deflate(Deflater.NO_FLUSH);
+            }
+        }
+
+        public void flush() throws IOException {
+            if (!closed) {
+                int length;
+                do {
+                    length = deflate(Deflater.SYNC_FLUSH);
+                } while (length == buffer.length);
+            }
+            out.flush();
+        }
+
+        private int deflate(int flush) throws IOException {
+            long start = System.nanoTime();
+            int length = deflater.deflate(buffer, 0, buffer.length, flush);
+            nanos += System.nanoTime() - start;
+            if (length > 0) {
+                out.write(buffer, 0, length);
+                written += length;
+            }
+            return length;
+        }
+
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    deflate(Deflater.NO_FLUSH);
+                }
+                if (crc != null) {
+                    writeIntLE(out, (int) crc.getValue());
+                    writeIntLE(out, (int) deflater.getBytesRead());
+                    written += 8;
+                }
+                uncompressedBytes.add(deflater.getBytesRead());
+                compressedBytes.add(written);
+                compressionNanos.add(nanos);
+            } finally {
+                deflater.end();
+                out.close();
+            }
+        }
+    }
+
+    record EncodedEntityDetails(long contentLength, ContentType contentType, String encoding) implements EntityDetails {
+        public long getContentLength() {
+            return contentLength;
+        }
+
+        public String getContentType() {
+            return contentType.toString();
+        }
+
+        public String getContentEncoding() {
+            return encoding;
+        }
+
+        public boolean isChunked() {
+            return contentLength < 0;
+        }
+
+        public Set<String> getTrailerNames() {
+            return Set.of();
+        }
+    }
+}
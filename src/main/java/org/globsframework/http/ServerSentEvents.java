@@ -0,0 +1,372 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.model.FieldValues;
+import org.globsframework.core.model.Glob;
+import org.globsframework.http.streams.WindowedOutputStream;
+import org.globsframework.json.GSonUtils;
+import org.globsframework.shared.SharedDataAccess;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+// text/event-stream of the put and delete of the globs of a type under a path of a SharedDataAccess.
+// A single listener is shared by all the connections : each event is encoded once, numbered (epoch-revision)
+// and kept in a history. A new client get the current globs (a reset event with their count then a put by glob)
+// then the changes, a client reconnecting with Last-Event-ID get only the events it missed if they are still
+// in the history (the current globs otherwise).
+// Each connection has a bounded queue : when it is full the event is dropped or the connection is closed
+// (the client reconnect and resume from the history). The current globs are encoded as they are sent and are
+// not counted in the queue.
+public class ServerSentEvents {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ServerSentEvents.class);
+    public static final String LAST_EVENT_ID = "Last-Event-ID";
+    public static final Duration DEFAULT_HEARTBEAT = Duration.ofSeconds(15);
+    public static final int DEFAULT_MAX_QUEUED_EVENTS = 1000;
+    public static final int DEFAULT_HISTORY_SIZE = 1000;
+    private static final byte[] HEARTBEAT = ":\n\n".getBytes(UTF_8);
+    private final SharedDataAccess sharedDataAccess;
+    private final GlobType type;
+    private final FieldValues path;
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+    private Duration heartbeat = DEFAULT_HEARTBEAT;
+    private int maxQueuedEvents = DEFAULT_MAX_QUEUED_EVENTS;
+    private int historySize = DEFAULT_HISTORY_SIZE;
+    private boolean evictSlowConsumers = true;
+    private byte[][] history;
+    private long revision;
+    private boolean closed;
+    private SharedDataAccess.ListenerCtrl listenerCtrl;
+    private DeadlineTimer.Timeout heartbeatTimeout;
+
+    public ServerSentEvents(SharedDataAccess sharedDataAccess, GlobType type, FieldValues path) {
+        this.sharedDataAccess = sharedDataAccess;
+        this.type = type;
+        this.path = path;
+    }
+
+    // a comment is sent on the idle connections to keep them open through the proxies and detect the dead ones.
+    public ServerSentEvents withHeartbeat(Duration heartbeat) {
+        this.heartbeat = heartbeat;
+        return this;
+    }
+
+    public ServerSentEvents withMaxQueuedEvents(int maxQueuedEvents) {
+        this.maxQueuedEvents = maxQueuedEvents;
+        return this;
+    }
+
+    // number of events kept to resume the clients (0 : the current globs are always sent).
+    public ServerSentEvents withHistorySize(int historySize) {
+        this.historySize = historySize;
+        return this;
+    }
+
+    // the events are dropped for a slow client instead of closing its connection.
+    public ServerSentEvents dropOnOverflow() {
+        this.evictSlowConsumers = false;
+        return this;
+    }
+
+    // the listener is registered with the first connection.
+    private void start() {
+        history = new byte[historySize][];
+        listenerCtrl = sharedDataAccess.listenUnder(type, new SharedDataAccess.Listener() {
+            public void put(Glob glob) {
+                publish("put", glob);
+            }
+
+            public void delete(Glob glob) {
+                publish("delete", glob);
+            }
+        }, path);
+        if (!heartbeat.isZero()) {
+            heartbeatTimeout = DeadlineTimer.DEFAULT.schedule(this::heartbeat, heartbeat.toNanos());
+        }
+    }
+
+    private void publish(String event, Glob glob) {
+        String data = GSonUtils.encode(glob, false);
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            revision++;
+            byte[] frame = ("id: " + epoch + "-" + revision + "\nevent: " + event + "\ndata: " + data + "\n\n").getBytes(UTF_8);
+            if (history.length > 0) {
+                history[(int) (revision % history.length)] = frame;
+            }
+            for (Connection connection : connections) {
+                connection.offer(frame);
+            }
+        }
+    }
+
+    // called on the timer thread.
+    private void heartbeat() {
+        for (Connection connection : connections) {
+            connection.heartbeat();
+        }
+        synchronized (this) {
+            if (!closed) {
+                heartbeatTimeout = DeadlineTimer.DEFAULT.schedule(this::heartbeat, heartbeat.toNanos());
+            }
+        }
+    }
+
+    // the connection is opened by the request handler with the Last-Event-ID header of the request.
+    Connection newConnection() {
+        return new Connection();
+    }
+
+    Connection connect(String lastEventId) {
+        Connection connection = new Connection();
+        open(connection, lastEventId);
+        return connection;
+    }
+
+    private void open(Connection connection, String lastEventId) {
+        long resumeFrom;
+        long snapshotRevision;
+        synchronized (this) {
+            if (closed) {
+                throw new HttpException(503, "Event stream closed");
+            }
+            if (listenerCtrl == null) {
+                start();
+            }
+            resumeFrom = resumeRevision(lastEventId);
+            if (resumeFrom >= 0) {
+                for (long i = resumeFrom + 1; i <= revision; i++) {
+                    connection.queue.add(history[(int) (i % history.length)]);
+                }
+            } else {
+                connection.loading = true;
+            }
+            snapshotRevision = revision;
+            connections.add(connection);
+        }
+        if (resumeFrom < 0) {
+            // the events received while loading are sent after the current globs (a glob can be sent twice).
+            sharedDataAccess.getUnder(type, path).whenComplete((globs, throwable) -> {
+                if (throwable != null) {
+                    LOGGER.error("Fail to load the current " + type.getName(), throwable);
+                    connection.end();
+                } else {
+                    connection.loaded(globs, snapshotRevision);
+                }
+            });
+        }
+    }
+
+    // the revision of the last event received by the client or -1 if the missed events are not in the history.
+    private long resumeRevision(String lastEventId) {
+        if (lastEventId == null || history.length == 0) {
+            return -1;
+        }
+        int separator = lastEventId.lastIndexOf('-');
+        if (separator < 0 || !lastEventId.substring(0, separator).equals(epoch)) {
+            return -1; // not sent by this instance.
+        }
+        long lastRevision;
+        try {
+            lastRevision = Long.parseLong(lastEventId.substring(separator + 1).trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+        if (lastRevision > revision || lastRevision < revision - history.length) {
+            return -1;
+        }
+        return lastRevision;
+    }
+
+    // the listener is unregistered and the connections ended.
+    public void close() {
+        synchronized (this) {
+            closed = true;
+            if (listenerCtrl != null) {
+                listenerCtrl.close();
+            }
+            if (heartbeatTimeout != null) {
+                heartbeatTimeout.cancel();
+            }
+        }
+        for (Connection connection : connections) {
+            connection.end();
+        }
+    }
+
+    public int getConnections() {
+        return connections.size();
+    }
+
+    public synchronized long getRevision() {
+        return revision;
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getEvicted() {
+        return evicted.sum();
+    }
+
+    // the response of a client : the frames are polled by the io thread when it can write.
+    public class Connection implements HttpOutputData {
+        private final ArrayDeque<byte[]> queue = new ArrayDeque<>();
+        private Runnable wakeUp;
+        private List<Glob> snapshot;
+        private int snapshotIndex;
+        private long snapshotRevision;
+        private boolean loading;
+        private boolean waiting;
+        private boolean ended;
+
+        public boolean isGlob() {
+            return false;
+        }
+
+        public Glob getGlob() {
+            return null;
+        }
+
+        public SizedStream getStream() {
+            return null;
+        }
+
+        // throws a 503 if the events are closed.
+        void open(String lastEventId) {
+            ServerSentEvents.this.open(this, lastEventId);
+        }
+
+        // wakeUp is called when a frame is queued while the io thread wait for one.
+        synchronized void start(Runnable wakeUp) {
+            this.wakeUp = wakeUp;
+        }
+
+        void offer(byte[] frame) {
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                if (queue.size() >= maxQueuedEvents) {
+                    if (evictSlowConsumers) {
+                        evicted.increment();
+                        LOGGER.info("Slow event stream client closed");
+                        queue.clear();
+                        snapshot = null;
+                        ended = true;
+                        connections.remove(this);
+                    } else {
+                        dropped.increment();
+                        return;
+                    }
+                } else {
+                    queue.add(frame);
+                }
+            }
+            wakeUp();
+        }
+
+        private void heartbeat() {
+            synchronized (this) {
+                if (ended || loading || snapshot != null || !queue.isEmpty()) {
+                    return;
+                }
+                queue.add(HEARTBEAT);
+            }
+            wakeUp();
+        }
+
+        // the events received while loading stay in the queue : they are sent after the current globs.
+        private void loaded(List<Glob> globs, long snapshotRevision) {
+            synchronized (this) {
+                if (ended) {
+                    return;
+                }
+                this.snapshot = globs;
+                this.snapshotIndex = -1;
+                this.snapshotRevision = snapshotRevision;
+                loading = false;
+            }
+            wakeUp();
+        }
+
+        // a reset event with the count of the current globs, a put by glob then the id of the snapshot.
+        private byte[] nextSnapshotFrame() {
+            if (snapshotIndex < 0) {
+                snapshotIndex = 0;
+                return ("event: reset\ndata: " + snapshot.size() + "\n\n").getBytes(UTF_8);
+            }
+            if (snapshotIndex < snapshot.size()) {
+                return ("event: put\ndata: " + GSonUtils.encode(snapshot.get(snapshotIndex++), false) + "\n\n").getBytes(UTF_8);
+            }
+            snapshot = null;
+            // no event : only set the last event id of the client.
+            return ("id: " + epoch + "-" + snapshotRevision + "\n\n").getBytes(UTF_8);
+        }
+
+        void end() {
+            synchronized (this) {
+                ended = true;
+            }
+            connections.remove(this);
+            wakeUp();
+        }
+
+        private void wakeUp() {
+            Runnable current;
+            synchronized (this) {
+                if (!waiting) {
+                    return;
+                }
+                waiting = false;
+                current = wakeUp;
+            }
+            if (current != null) {
+                current.run();
+            }
+        }
+
+        // next frame to send, PENDING if there is none yet or null once the connection is ended.
+        synchronized ByteBuffer poll() {
+            if (!loading && snapshot != null) {
+                return ByteBuffer.wrap(nextSnapshotFrame());
+            }
+            if (!loading) {
+                byte[] frame = queue.poll();
+                if (frame != null) {
+                    return ByteBuffer.wrap(frame);
+                }
+            }
+            if (ended) {
+                return null;
+            }
+            waiting = true;
+            return WindowedOutputStream.PENDING;
+        }
+
+        // the response is done or the client is gone.
+        void close() {
+            synchronized (this) {
+                ended = true;
+                queue.clear();
+                snapshot = null;
+            }
+            connections.remove(this);
+        }
+    }
+}
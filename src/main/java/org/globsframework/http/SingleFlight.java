@@ -0,0 +1,89 @@
+package org.globsframework.http;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Identical concurrent calls of an operation share the call of the first one (the leader) :
+// the others attach to its future until it completes and reuse its encoded response.
+public class SingleFlight {
+    private final ConcurrentHashMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    interface Call {
+        CompletableFuture<HttpOutputData> call() throws Exception;
+    }
+
+    // the flight in progress for this key or a new one started with call.
+    Flight join(String key, Call call) {
+        Flight flight = new Flight();
+        Flight current = flights.putIfAbsent(key, flight);
+        if (current != null) {
+            current.followers.incrementAndGet();
+            coalesced.increment();
+            return current;
+        }
+        calls.increment();
+        CompletableFuture<HttpOutputData> result;
+        try {
+            result = call.call();
+        } catch (Exception e) {
+            result = CompletableFuture.failedFuture(e);
+        }
+        if (result == null) {
+            result = CompletableFuture.completedFuture(null);
+        }
+        result.whenComplete((httpOutputData, throwable) -> {
+            flights.remove(key, flight);
+            if (throwable != null) {
+                flight.result.completeExceptionally(throwable);
+            } else {
+                flight.result.complete(httpOutputData);
+            }
+        });
+        return flight;
+    }
+
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    public long getCoalesced() {
+        return coalesced.sum();
+    }
+
+    public int getInFlight() {
+        return flights.size();
+    }
+
+    static class Flight {
+        private final CompletableFuture<HttpOutputData> result = new CompletableFuture<>();
+        private final ConcurrentHashMap<String, ResponseCache.Cached> encoded = new ConcurrentHashMap<>();
+        private final AtomicInteger followers = new AtomicInteger();
+        private final AtomicBoolean streamTaken = new AtomicBoolean();
+
+        CompletableFuture<HttpOutputData> result() {
+            return result;
+        }
+
+        boolean isShared() {
+            return followers.get() > 0;
+        }
+
+        // only one caller can send a stream result.
+        boolean takeStream() {
+            return streamTaken.compareAndSet(false, true);
+        }
+
+        ResponseCache.Cached getEncoded(String representation) {
+            return encoded.get(representation);
+        }
+
+        void shareEncoded(String representation, ResponseCache.Cached response) {
+            encoded.putIfAbsent(representation, response);
+        }
+    }
+}
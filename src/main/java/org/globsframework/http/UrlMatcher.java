@@ -6,5 +6,9 @@ public interface UrlMatcher {
 
     Glob parse(String[] split);
 
+    default Glob parse(UrlPath path) {
+        return parse(path.segments());
+    }
+
     boolean withWildCard();
 }
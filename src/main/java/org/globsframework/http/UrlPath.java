@@ -0,0 +1,116 @@
+package org.globsframework.http;
+
+import java.util.Arrays;
+
+// Segments of a request path kept as offsets over the raw path : no substring is created to route the request.
+// Segments follow String.split("/") on the path without its first '/' and its query (trailing empty segments are dropped).
+// An instance can be reset for another path : it must not be kept after the dispatch of the request.
+public final class UrlPath {
+    private String path;
+    private int[] bounds = new int[32];
+    private int size;
+    private int queryStart;
+
+    public UrlPath() {
+    }
+
+    public static UrlPath parse(String path) {
+        UrlPath urlPath = new UrlPath();
+        urlPath.reset(path);
+        return urlPath;
+    }
+
+    public UrlPath reset(String path) {
+        this.path = path;
+        size = 0;
+        int query = path.indexOf('?');
+        int end = query == -1 ? path.length() : query;
+        queryStart = query == -1 ? -1 : query + 1;
+        int start = path.startsWith("/") ? 1 : 0;
+        int segmentStart = start;
+        for (int i = start; i < end; i++) {
+            if (path.charAt(i) == '/') {
+                add(segmentStart, i);
+                segmentStart = i + 1;
+            }
+        }
+        add(segmentStart, end);
+        if (size > 1) {
+            while (size > 0 && start(size - 1) == end(size - 1)) {
+                size--;
+            }
+        }
+        return this;
+    }
+
+    private void add(int start, int end) {
+        int index = size * 2;
+        if (index + 2 > bounds.length) {
+            bounds = Arrays.copyOf(bounds, bounds.length * 2);
+        }
+        bounds[index] = start;
+        bounds[index + 1] = end;
+        size++;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int start(int index) {
+        return bounds[index * 2];
+    }
+
+    public int end(int index) {
+        return bounds[index * 2 + 1];
+    }
+
+    public int length(int index) {
+        return end(index) - start(index);
+    }
+
+    public char charAt(int index, int position) {
+        return path.charAt(start(index) + position);
+    }
+
+    // same value as segment(index).hashCode()
+    public int hash(int index) {
+        int h = 0;
+        for (int i = start(index), end = end(index); i < end; i++) {
+            h = 31 * h + path.charAt(i);
+        }
+        return h;
+    }
+
+    public boolean segmentEquals(int index, String value) {
+        return value.length() == length(index) && path.regionMatches(start(index), value, 0, value.length());
+    }
+
+    public String segment(int index) {
+        return path.substring(start(index), end(index));
+    }
+
+    public String[] segments() {
+        return segments(0);
+    }
+
+    public String[] segments(int from) {
+        String[] segments = new String[Math.max(0, size - from)];
+        for (int i = from; i < size; i++) {
+            segments[i - from] = segment(i);
+        }
+        return segments;
+    }
+
+    public String query() {
+        return queryStart == -1 ? null : path.substring(queryStart);
+    }
+
+    public String toString() {
+        return path;
+    }
+}
@@ -0,0 +1,56 @@
+package org.globsframework.http;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Executor with a virtual thread by task (java 21+). The code is compiled for java 17 : on an older jvm
+// a pool of at most MAX_THREADS_PROPERTY daemon threads is used instead, the tasks over it are rejected
+// (the request get a 503).
+public final class VirtualThreads {
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+    public static final String MAX_THREADS_PROPERTY = "globs.http.blocking.maxThreads";
+    public static final int DEFAULT_MAX_THREADS = 256;
+    private static final ExecutorService EXECUTOR = create();
+
+    private VirtualThreads() {
+    }
+
+    public static Executor executor() {
+        return EXECUTOR;
+    }
+
+    public static boolean isAvailable() {
+        return Runtime.version().feature() >= 21;
+    }
+
+    private static ExecutorService create() {
+        if (isAvailable()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                LOGGER.warn("Virtual threads not available", e);
+            }
+        }
+        int maxThreads = Integer.getInteger(MAX_THREADS_PROPERTY, DEFAULT_MAX_THREADS);
+        LOGGER.warn("Virtual threads need java 21 : blocking treatments, request readers and streamed responses use at most "
+                + maxThreads + " platform threads (" + MAX_THREADS_PROPERTY + ")");
+        return platformThreads(maxThreads);
+    }
+
+    static ExecutorService platformThreads(int maxThreads) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(0, maxThreads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), runnable -> {
+            Thread thread = new Thread(runnable, "blocking-treatment-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,208 @@
+package org.globsframework.http.accesslog;
+
+import org.globsframework.core.model.Glob;
+import org.globsframework.http.metrics.RouteMetrics;
+import org.globsframework.json.GSonUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Structured access log : the io / worker threads only put a record in a ring buffer (dropped if full),
+// a background thread format it as a json line and give it to the writer. The thread is parked while there is
+// no record : it is unparked by the first record offered.
+// Responses with a status >= 500 are always logged, the others with recordRate ; bodies are sampled with bodyRate.
+public class AccessLog implements AutoCloseable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(AccessLog.class);
+    public static final int DEFAULT_CAPACITY = 16 * 1024;
+    public static final int DEFAULT_MAX_BODY_SAMPLE = 1000;
+    private static final RouteMetrics.Phase[] PHASES = RouteMetrics.Phase.values();
+
+    public interface Writer {
+        void write(String line);
+
+        // called when no more records are waiting.
+        default void flush() {
+        }
+    }
+
+    private final RingBuffer<AccessLogRecord> records;
+    private final Writer writer;
+    private final Thread thread;
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private volatile double recordRate = 1.;
+    private volatile double bodyRate = 0.;
+    private volatile int maxBodySample = DEFAULT_MAX_BODY_SAMPLE;
+    private volatile boolean closed;
+    private volatile boolean waiting;
+
+    public AccessLog(int capacity, Writer writer) {
+        this.records = new RingBuffer<>(capacity);
+        this.writer = writer;
+        this.thread = new Thread(this::run, "globs-http-access-log");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // lines are logged at info level on the org.globsframework.http.access logger.
+    public static AccessLog toLogger() {
+        Logger logger = LoggerFactory.getLogger("org.globsframework.http.access");
+        return new AccessLog(DEFAULT_CAPACITY, logger::info);
+    }
+
+    public AccessLog withSampling(double recordRate, double bodyRate) {
+        this.recordRate = recordRate;
+        this.bodyRate = bodyRate;
+        return this;
+    }
+
+    public AccessLog withMaxBodySample(int maxChars) {
+        this.maxBodySample = maxChars;
+        return this;
+    }
+
+    public boolean isSampled(int status) {
+        return status >= 500 || sample(recordRate);
+    }
+
+    public boolean isBodySampled() {
+        return sample(bodyRate);
+    }
+
+    private static boolean sample(double rate) {
+        return rate >= 1. || (rate > 0. && ThreadLocalRandom.current().nextDouble() < rate);
+    }
+
+    public boolean isBodyLogged() {
+        return bodyRate > 0.;
+    }
+
+    public void log(AccessLogRecord record) {
+        if (closed || !records.offer(record)) {
+            dropped.increment();
+        } else if (waiting) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private void run() {
+        boolean toFlush = false;
+        while (true) {
+            AccessLogRecord record = records.poll();
+            if (record != null) {
+                try {
+                    writer.write(format(record));
+                    written.increment();
+                } catch (Exception e) {
+                    LOGGER.error("Fail to write access log", e);
+                }
+                toFlush = true;
+                continue;
+            }
+            if (toFlush) {
+                toFlush = false;
+                try {
+                    writer.flush();
+                } catch (Exception e) {
+                    LOGGER.error("Fail to flush access log", e);
+                }
+                continue;
+            }
+            if (closed) {
+                return;
+            }
+            // waiting is set before checking the buffer again : a record offered after the check see it and unpark.
+            waiting = true;
+            if (records.size() == 0 && !closed) {
+                LockSupport.park(this);
+            }
+            waiting = false;
+        }
+    }
+
+    String format(AccessLogRecord record) {
+        StringBuilder builder = new StringBuilder(256);
+        builder.append("{\"timestamp\":").append(record.timestamp());
+        appendString(builder.append(",\"method\":"), record.method());
+        appendString(builder.append(",\"route\":"), record.route());
+        String path = record.path();
+        if (record.sensitive() && path != null && path.indexOf('?') >= 0) {
+            path = path.substring(0, path.indexOf('?')); // query parameters are not logged
+        }
+        appendString(builder.append(",\"path\":"), path);
+        builder.append(",\"status\":").append(record.status());
+        builder.append(",\"requestBytes\":").append(record.requestBytes());
+        builder.append(",\"responseBytes\":").append(record.responseBytes());
+        long[] phaseNanos = record.phaseNanos();
+        for (int i = 0; i < PHASES.length && i < phaseNanos.length; i++) {
+            builder.append(",\"").append(PHASES[i].name()).append("Us\":").append(phaseNanos[i] / 1000);
+        }
+        appendBody(builder, "requestBody", record.requestBody(), record.sensitive());
+        appendBody(builder, "responseBody", record.responseBody(), record.sensitive());
+        return builder.append('}').toString();
+    }
+
+    private void appendBody(StringBuilder builder, String name, Glob body, boolean sensitive) {
+        if (body == null) {
+            return;
+        }
+        String json = sensitive ? GSonUtils.encodeHidSensitiveData(body) : GSonUtils.encode(body, false);
+        if (json.length() > maxBodySample) {
+            json = json.substring(0, maxBodySample) + "...";
+        }
+        appendString(builder.append(",\"").append(name).append("\":"), json);
+    }
+
+    private static void appendString(StringBuilder builder, String value) {
+        if (value == null) {
+            builder.append("null");
+            return;
+        }
+        builder.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> builder.append("\\\"");
+                case '\\' -> builder.append("\\\\");
+                case '\n' -> builder.append("\\n");
+                case '\r' -> builder.append("\\r");
+                case '\t' -> builder.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        builder.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        builder.append(c);
+                    }
+                }
+            }
+        }
+        builder.append('"');
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public int getPending() {
+        return records.size();
+    }
+
+    // the waiting records are written before the thread stop.
+    public void close() {
+        closed = true;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
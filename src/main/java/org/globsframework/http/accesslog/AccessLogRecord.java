@@ -0,0 +1,10 @@
+package org.globsframework.http.accesslog;
+
+import org.globsframework.core.model.Glob;
+
+// One request : the phase durations are in nanoseconds (0 if the phase did not happen),
+// the bodies are only set if sampled and are encoded (and redacted if sensitive) by the writer thread.
+public record AccessLogRecord(long timestamp, String method, String route, String path, int status,
+                              long requestBytes, long responseBytes, long[] phaseNanos,
+                              boolean sensitive, Glob requestBody, Glob responseBody) {
+}
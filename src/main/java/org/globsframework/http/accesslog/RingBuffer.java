@@ -0,0 +1,53 @@
+package org.globsframework.http.accesslog;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Bounded queue for many producers and one consumer, without lock : offer never wait and fail if the buffer is full.
+class RingBuffer<T> {
+    private final int mask;
+    private final AtomicReferenceArray<T> items;
+    // sequence + 1 of the item published in each slot.
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    RingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        mask = size - 1;
+        items = new AtomicReferenceArray<>(size);
+        published = new AtomicLongArray(size);
+    }
+
+    boolean offer(T item) {
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head > mask) {
+                return false;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        int index = (int) (sequence & mask);
+        items.lazySet(index, item);
+        published.set(index, sequence + 1);
+        return true;
+    }
+
+    // consumer thread only : null if empty (or the next item is not published yet).
+    T poll() {
+        long sequence = head;
+        int index = (int) (sequence & mask);
+        if (published.get(index) != sequence + 1) {
+            return null;
+        }
+        T item = items.get(index);
+        items.lazySet(index, null);
+        head = sequence + 1;
+        return item;
+    }
+
+    int size() {
+        return (int) (tail.get() - head);
+    }
+}
@@ -0,0 +1,61 @@
+package org.globsframework.http.metrics;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+// Fixed buckets histogram updated without lock (striped counters) : the value is counted in the first bucket
+// with an upper bound greater or equal, the last bucket is +Inf.
+public class Histogram {
+    // latency buckets in nanoseconds, from 50us to 10s.
+    public static final long[] LATENCY_BOUNDS = {
+            50_000L, 100_000L, 250_000L, 500_000L,
+            1_000_000L, 2_500_000L, 5_000_000L, 10_000_000L, 25_000_000L, 50_000_000L,
+            100_000_000L, 250_000_000L, 500_000_000L,
+            1_000_000_000L, 2_500_000_000L, 5_000_000_000L, 10_000_000_000L};
+    // size buckets in bytes, from 64B to 16MB.
+    public static final long[] SIZE_BOUNDS = {
+            64L, 256L, 1024L, 4096L, 16_384L, 65_536L, 262_144L, 1_048_576L, 4_194_304L, 16_777_216L};
+
+    private final long[] bounds;
+    private final LongAdder[] counts;
+    private final LongAdder sum = new LongAdder();
+
+    public Histogram(long[] bounds) {
+        this.bounds = bounds;
+        this.counts = new LongAdder[bounds.length + 1];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+        }
+    }
+
+    public void record(long value) {
+        int index = Arrays.binarySearch(bounds, value);
+        counts[index >= 0 ? index : -index - 1].increment();
+        sum.add(value);
+    }
+
+    public long[] getBounds() {
+        return bounds;
+    }
+
+    // count by bucket (not cumulative), the last one is the +Inf bucket.
+    public long[] getCounts() {
+        long[] values = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            values[i] = counts[i].sum();
+        }
+        return values;
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (LongAdder adder : counts) {
+            count += adder.sum();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,81 @@
+package org.globsframework.http.metrics;
+
+// Prometheus text format (version 0.0.4) : the samples of a metric must follow its TYPE line.
+public class PrometheusFormat {
+    public static final String MIME_TYPE = "text/plain";
+    private final StringBuilder out = new StringBuilder(4096);
+
+    public PrometheusFormat declare(String name, String type, String help) {
+        out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+        return this;
+    }
+
+    public PrometheusFormat sample(String name, String labels, long value) {
+        appendName(name, labels).append(' ').append(value).append('\n');
+        return this;
+    }
+
+    public PrometheusFormat sample(String name, String labels, double value) {
+        appendName(name, labels).append(' ').append(format(value)).append('\n');
+        return this;
+    }
+
+    // the bounds and the sum are divided by unit (1e9 to export nanoseconds in seconds).
+    public PrometheusFormat histogram(String name, String labels, Histogram histogram, double unit) {
+        long[] bounds = histogram.getBounds();
+        long[] counts = histogram.getCounts();
+        String prefix = labels.isEmpty() ? "" : labels + ",";
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            String le = i < bounds.length ? format(bounds[i] / unit) : "+Inf";
+            appendName(name + "_bucket", prefix + "le=\"" + le + "\"").append(' ').append(cumulative).append('\n');
+        }
+        sample(name + "_sum", labels, histogram.getSum() / unit);
+        sample(name + "_count", labels, cumulative);
+        return this;
+    }
+
+    private StringBuilder appendName(String name, String labels) {
+        out.append(name);
+        if (!labels.isEmpty()) {
+            out.append('{').append(labels).append('}');
+        }
+        return out;
+    }
+
+    // name="value" pairs separated by comma.
+    public static String labels(String... namesAndValues) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(namesAndValues[i]).append("=\"");
+            String value = namesAndValues[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char c = value.charAt(j);
+                switch (c) {
+                    case '\\' -> builder.append("\\\\");
+                    case '"' -> builder.append("\\\"");
+                    case '\n' -> builder.append("\\n");
+                    default -> builder.append(c);
+                }
+            }
+            builder.append('"');
+        }
+        return builder.toString();
+    }
+
+    private static String format(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    public String toString() {
+        return out.toString();
+    }
+}
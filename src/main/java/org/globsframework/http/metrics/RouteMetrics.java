@@ -0,0 +1,77 @@
+package org.globsframework.http.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Requests of a registered url template and verb : count by status class, latency by phase, request and response sizes.
+public class RouteMetrics {
+    public enum Phase {
+        // from the request head to the handler creation (route lookup, url and query parameters parsing).
+        routing,
+        // waiting in the executor queue.
+        queue,
+        // from the treatment call to the completion of its future.
+        treatment,
+        // json / binary encoding and compression of the response.
+        encoding,
+        // from the response head to the last byte given to the connection.
+        write,
+        total
+    }
+
+    private final String method;
+    private final String route;
+    private final LongAdder[] statusClasses = new LongAdder[6];
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Histogram requestSize = new Histogram(Histogram.SIZE_BOUNDS);
+    private final Histogram responseSize = new Histogram(Histogram.SIZE_BOUNDS);
+
+    public RouteMetrics(String method, String route) {
+        this.method = method;
+        this.route = route;
+        for (int i = 0; i < statusClasses.length; i++) {
+            statusClasses[i] = new LongAdder();
+        }
+        for (int i = 0; i < phases.length; i++) {
+            phases[i] = new Histogram(Histogram.LATENCY_BOUNDS);
+        }
+    }
+
+    public void recordStatus(int status) {
+        int statusClass = status / 100;
+        statusClasses[statusClass >= 1 && statusClass <= 5 ? statusClass : 0].increment();
+    }
+
+    public void recordPhase(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    public void recordSizes(long requestBytes, long responseBytes) {
+        requestSize.record(requestBytes);
+        responseSize.record(responseBytes);
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getRoute() {
+        return route;
+    }
+
+    // count of 1xx to 5xx responses (statusClass 1 to 5), 0 for unknown status.
+    public long getCount(int statusClass) {
+        return statusClasses[statusClass].sum();
+    }
+
+    public Histogram getPhase(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public Histogram getRequestSize() {
+        return requestSize;
+    }
+
+    public Histogram getResponseSize() {
+        return responseSize;
+    }
+}
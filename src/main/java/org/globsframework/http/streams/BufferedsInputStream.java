@@ -4,20 +4,33 @@ import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.LinkedList;
 import java.util.Queue;
+import java.util.function.IntConsumer;
 
 public class BufferedsInputStream extends InputStream {
     private static final byte[] LAST_EMPTY_BUFFER = new byte[0];
     private final Queue<byte[]> dataQueue = new LinkedList<>();
+    private final IntConsumer onRead;
     private byte[] currentBuffer = null;
     private int currentIndex = 0; // Current position within the current buffer
     private boolean closed = false;
 
+    public BufferedsInputStream() {
+        this(read -> {
+        });
+    }
+
+    // onRead is called by the reader thread with the count of bytes read (used for flow control).
+    public BufferedsInputStream(IntConsumer onRead) {
+        this.onRead = onRead;
+    }
+
     public int read() {
         while (true) {
             if (closed) {
                 throw new IllegalStateException("Stream is closed");
             }
             if (currentBuffer != null && currentIndex < currentBuffer.length) {
+                onRead.accept(1);
                 return currentBuffer[currentIndex++] & 0xFF; // Read a byte from the current buffer
             }
             if (!readFromNextBuffer()){
@@ -55,6 +68,9 @@ public class BufferedsInputStream extends InputStream {
         if (closed) {
             throw new IllegalStateException("Stream is closed");
         }
+        if (len == 0) {
+            return 0;
+        }
         int bytesRead = 0;
         while (bytesRead == 0) {
             if (currentBuffer != null && currentIndex < currentBuffer.length) {
@@ -70,6 +86,7 @@ public class BufferedsInputStream extends InputStream {
                 return -1;
             }
         }
+        onRead.accept(bytesRead);
         return bytesRead;
     }
 
@@ -0,0 +1,33 @@
+package org.globsframework.http.streams;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+// read the remaining bytes of a buffer (the buffer position is moved).
+public class ByteBufferInputStream extends InputStream {
+    private final ByteBuffer buffer;
+
+    public ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+    }
+
+    public int read(byte[] b, int off, int len) {
+        if (len == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        int read = Math.min(len, buffer.remaining());
+        buffer.get(b, off, read);
+        return read;
+    }
+
+    public int available() {
+        return buffer.remaining();
+    }
+}
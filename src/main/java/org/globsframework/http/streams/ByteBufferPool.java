@@ -0,0 +1,93 @@
+package org.globsframework.http.streams;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+// Pool of direct buffers by power of two size from 1KB to 1MB.
+// Each size class keep at most maxBytesPerClass of free buffers, others are left to the GC.
+public class ByteBufferPool {
+    public static final int MIN_SIZE = 1024;
+    public static final int MAX_SIZE = 1024 * 1024;
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE / MIN_SIZE) + 1;
+    public static final ByteBufferPool DEFAULT = new ByteBufferPool(4 * 1024 * 1024);
+
+    private final ConcurrentLinkedQueue<ByteBuffer>[] freeBuffers;
+    private final AtomicInteger[] freeCount;
+    private final int[] maxFreeCount;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder discarded = new LongAdder();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ByteBufferPool(int maxBytesPerClass) {
+        freeBuffers = new ConcurrentLinkedQueue[CLASS_COUNT];
+        freeCount = new AtomicInteger[CLASS_COUNT];
+        maxFreeCount = new int[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            freeBuffers[i] = new ConcurrentLinkedQueue<>();
+            freeCount[i] = new AtomicInteger();
+            maxFreeCount[i] = Math.max(1, maxBytesPerClass / (MIN_SIZE << i));
+        }
+    }
+
+    // a cleared buffer of at least minCapacity (a not pooled buffer above MAX_SIZE)
+    public ByteBuffer acquire(int minCapacity) {
+        if (minCapacity > MAX_SIZE) {
+            misses.increment();
+            return ByteBuffer.allocateDirect(minCapacity);
+        }
+        int index = classIndex(minCapacity);
+        ByteBuffer buffer = freeBuffers[index].poll();
+        if (buffer != null) {
+            freeCount[index].decrementAndGet();
+            hits.increment();
+            return buffer.clear();
+        }
+        misses.increment();
+        return ByteBuffer.allocateDirect(MIN_SIZE << index);
+    }
+
+    // the buffer must not be used after this call.
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() > MAX_SIZE || Integer.bitCount(buffer.capacity()) != 1
+                || buffer.capacity() < MIN_SIZE) {
+            return;
+        }
+        int index = classIndex(buffer.capacity());
+        if (freeCount[index].incrementAndGet() > maxFreeCount[index]) {
+            freeCount[index].decrementAndGet();
+            discarded.increment();
+            return;
+        }
+        freeBuffers[index].add(buffer);
+    }
+
+    private static int classIndex(int capacity) {
+        if (capacity <= MIN_SIZE) {
+            return 0;
+        }
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - Integer.numberOfTrailingZeros(MIN_SIZE);
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    public long getPooledBytes() {
+        long bytes = 0;
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            bytes += (long) freeCount[i].get() * (MIN_SIZE << i);
+        }
+        return bytes;
+    }
+}
@@ -3,22 +3,30 @@ package org.globsframework.http.streams;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.zip.Deflater;
 
 public class MultiBufferOutputStream extends OutputStream {
+    private final ByteBufferPool pool;
     int size = 0;
-    List<ByteBuffer> buffers = new LinkedList<>();
-    ByteBuffer currentBuffer = ByteBuffer.allocateDirect(1024);
+    List<ByteBuffer> buffers = new ArrayList<>();
+    ByteBuffer currentBuffer;
 
     public MultiBufferOutputStream() {
+        this(ByteBufferPool.DEFAULT);
+    }
+
+    public MultiBufferOutputStream(ByteBufferPool pool) {
+        this.pool = pool;
+        currentBuffer = pool.acquire(ByteBufferPool.MIN_SIZE);
         buffers.add(currentBuffer);
     }
 
     public void write(int i) throws IOException {
         if (currentBuffer.remaining() == 0) {
             currentBuffer.flip();
-            currentBuffer = ByteBuffer.allocateDirect(getCapacity());
+            currentBuffer = pool.acquire(getCapacity());
             buffers.add(currentBuffer);
         }
         currentBuffer.put((byte)i);
@@ -34,7 +42,7 @@ public class MultiBufferOutputStream extends OutputStream {
             int remaining = currentBuffer.remaining();
             if (remaining == 0) {
                 currentBuffer.flip();
-                currentBuffer = ByteBuffer.allocateDirect(getCapacity());
+                currentBuffer = pool.acquire(getCapacity());
                 buffers.add(currentBuffer);
             }
             int write = Math.min(len, remaining);
@@ -45,6 +53,21 @@ public class MultiBufferOutputStream extends OutputStream {
         }
     }
 
+    // deflate the pending input of the deflater directly in the buffers (until the end of the stream if finish)
+    public void deflate(Deflater deflater, boolean finish) {
+        if (finish) {
+            deflater.finish();
+        }
+        while (finish ? !deflater.finished() : !deflater.needsInput()) {
+            if (currentBuffer.remaining() == 0) {
+                currentBuffer.flip();
+                currentBuffer = pool.acquire(getCapacity());
+                buffers.add(currentBuffer);
+            }
+            size += deflater.deflate(currentBuffer);
+        }
+    }
+
     public long size() {
         return size;
     }
@@ -56,4 +79,13 @@ public class MultiBufferOutputStream extends OutputStream {
     public List<ByteBuffer> data() {
         return buffers;
     }
+
+    // give back the buffers to the pool once sent.
+    public void release() {
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        buffers.clear();
+        currentBuffer = null;
+    }
 }
@@ -0,0 +1,143 @@
+package org.globsframework.http.streams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+// OutputStream written by an encoder thread and read by the io thread.
+// At most maxPendingBuffers are waiting to be sent : the writer wait for the reader when the window is full.
+// A buffer returned by poll is given back to the pool at the next poll : it must be fully sent before.
+public class WindowedOutputStream extends OutputStream {
+    // returned by poll when the writer did not produce the next buffer yet.
+    public static final ByteBuffer PENDING = ByteBuffer.allocate(0);
+    private final ArrayDeque<ByteBuffer> pendingBuffers = new ArrayDeque<>();
+    private final ByteBufferPool pool;
+    private final int bufferSize;
+    private final int maxPendingBuffers;
+    private final Runnable onDataAvailable;
+    private ByteBuffer currentBuffer;
+    private ByteBuffer lastPolled;
+    private boolean readerWaiting;
+    private boolean completed;
+    private boolean aborted;
+    private long size;
+
+    public WindowedOutputStream(ByteBufferPool pool, int bufferSize, int maxPendingBuffers, Runnable onDataAvailable) {
+        this.pool = pool;
+        this.bufferSize = bufferSize;
+        this.maxPendingBuffers = maxPendingBuffers;
+        this.onDataAvailable = onDataAvailable;
+    }
+
+    public void write(int b) throws IOException {
+        if (currentBuffer == null || !currentBuffer.hasRemaining()) {
+            nextBuffer();
+        }
+        currentBuffer.put((byte) b);
+        size++;
+    }
+
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (currentBuffer == null || !currentBuffer.hasRemaining()) {
+                nextBuffer();
+            }
+            int write = Math.min(len, currentBuffer.remaining());
+            currentBuffer.put(b, off, write);
+            off += write;
+            len -= write;
+            size += write;
+        }
+    }
+
+    public void flush() throws IOException {
+        if (currentBuffer != null && currentBuffer.position() > 0) {
+            publish(currentBuffer, false);
+            currentBuffer = null;
+        }
+    }
+
+    public void close() throws IOException {
+        ByteBuffer last = currentBuffer != null && currentBuffer.position() > 0 ? currentBuffer : null;
+        currentBuffer = null;
+        publish(last, true);
+    }
+
+    public long size() {
+        return size;
+    }
+
+    private void nextBuffer() throws IOException {
+        if (currentBuffer != null) {
+            publish(currentBuffer, false);
+        }
+        currentBuffer = pool.acquire(bufferSize);
+    }
+
+    private void publish(ByteBuffer buffer, boolean last) throws IOException {
+        boolean notify;
+        synchronized (this) {
+            while (!aborted && pendingBuffers.size() >= maxPendingBuffers) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for the reader", e);
+                }
+            }
+            if (aborted) {
+                throw new IOException("Response stream closed");
+            }
+            if (buffer != null) {
+                buffer.flip();
+                pendingBuffers.add(buffer);
+            }
+            completed = last;
+            notify = readerWaiting;
+            readerWaiting = false;
+        }
+        if (notify) {
+            onDataAvailable.run();
+        }
+    }
+
+    // next buffer to send, PENDING if the writer is late or null if all the data was read.
+    public synchronized ByteBuffer poll() {
+        if (aborted) {
+            throw new UncheckedIOException(new IOException("Response stream aborted"));
+        }
+        if (lastPolled != null) {
+            pool.release(lastPolled);
+            lastPolled = null;
+        }
+        ByteBuffer buffer = pendingBuffers.poll();
+        if (buffer != null) {
+            lastPolled = buffer;
+            notifyAll();
+            return buffer;
+        }
+        if (completed) {
+            return null;
+        }
+        readerWaiting = true;
+        return PENDING;
+    }
+
+    // the writer get an IOException on its next write and the reader on its next poll.
+    public synchronized void abort() {
+        aborted = true;
+        pendingBuffers.forEach(pool::release);
+        pendingBuffers.clear();
+        lastPolled = null; // may still be written by the io thread : left to the GC.
+        notifyAll();
+    }
+
+    // called once the response is done (or the connection closed) : stop the writer and give back the buffers.
+    public synchronized void release() {
+        ByteBuffer polled = lastPolled;
+        abort();
+        pool.release(polled);
+    }
+}
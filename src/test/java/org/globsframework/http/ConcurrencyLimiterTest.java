@@ -0,0 +1,84 @@
+package org.globsframework.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrencyLimiterTest {
+
+    @Test
+    public void rejectOverLimit() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(2, 1, 10);
+        ConcurrencyLimiter.Permit first = limiter.tryAcquire();
+        Assert.assertNotNull(first);
+        Assert.assertNotNull(limiter.tryAcquire());
+        Assert.assertNull(limiter.tryAcquire());
+        Assert.assertEquals(1, limiter.getRejected());
+
+        first.release();
+        first.release();
+        Assert.assertEquals(1, limiter.getInFlight());
+        Assert.assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void limitFollowLatency() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100)
+                .withMaxLatency(Duration.ofMillis(100));
+        for (int round = 0; round < 50; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            ConcurrencyLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null) {
+                permits.add(permit);
+            }
+            permits.forEach(p -> p.release(TimeUnit.MILLISECONDS.toNanos(1)));
+        }
+        int increased = limiter.getLimit();
+        Assert.assertTrue("limit " + increased, increased > 25);
+
+        Thread.sleep(150);
+        limiter.tryAcquire().release(TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals((int) (increased * 0.9), limiter.getLimit(), 1);
+
+        // at most one decrease by latency threshold
+        limiter.tryAcquire().release(TimeUnit.MILLISECONDS.toNanos(200));
+        Assert.assertEquals((int) (increased * 0.9), limiter.getLimit(), 1);
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void relativeLimitIgnoreJitter() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(10, 1, 100);
+        Random random = new Random(1);
+        for (int round = 0; round < 100; round++) {
+            List<ConcurrencyLimiter.Permit> permits = new ArrayList<>();
+            ConcurrencyLimiter.Permit permit;
+            while ((permit = limiter.tryAcquire()) != null) {
+                permits.add(permit);
+            }
+            // from 5ms to 15ms : the slowest calls are 3 times the fastest.
+            permits.forEach(p -> p.release(TimeUnit.MICROSECONDS.toNanos(5_000 + random.nextInt(10_000))));
+        }
+        Assert.assertTrue("limit " + limiter.getLimit(), limiter.getLimit() > 40);
+    }
+
+    @Test
+    public void relativeLimitDecreaseOncePerWindow() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(50, 1, 100);
+        for (int i = 0; i < ConcurrencyLimiter.WINDOW_SAMPLES; i++) {
+            limiter.tryAcquire().release(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        // single slow calls : the window is not over yet.
+        for (int i = 0; i < ConcurrencyLimiter.WINDOW_SAMPLES - 1; i++) {
+            limiter.tryAcquire().release(TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        Assert.assertEquals(50, limiter.getLimit());
+        limiter.tryAcquire().release(TimeUnit.MILLISECONDS.toNanos(50));
+        Assert.assertEquals(45, limiter.getLimit());
+    }
+}
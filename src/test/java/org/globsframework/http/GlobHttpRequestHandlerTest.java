@@ -9,6 +9,7 @@ import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.*;
 import org.apache.hc.core5.http.impl.bootstrap.AsyncServerBootstrap;
 import org.apache.hc.core5.http.impl.bootstrap.HttpAsyncServer;
+import org.apache.hc.core5.http.io.entity.ByteArrayEntity;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.http.io.entity.StringEntity;
 import org.apache.hc.core5.http.nio.AsyncRequestConsumer;
@@ -25,6 +26,7 @@ import org.globsframework.core.model.Glob;
 import org.globsframework.core.utils.Files;
 import org.globsframework.core.utils.Ref;
 import org.globsframework.core.utils.collections.Pair;
+import org.globsframework.http.accesslog.AccessLog;
 import org.globsframework.http.model.HttpBodyData_;
 import org.globsframework.http.model.HttpGlobResponse_;
 import org.globsframework.http.model.StatusCode_;
@@ -32,18 +34,31 @@ import org.globsframework.http.openapi.model.GetOpenApiParamType;
 import org.globsframework.http.openapi.model.OpenApiType;
 import org.globsframework.json.GSonUtils;
 import org.globsframework.json.annottations.JsonHideValue_;
+import org.globsframework.serialisation.model.FieldNumber_;
 import org.junit.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.InetSocketAddress;
+import java.net.Socket;
 import java.net.SocketAddress;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 
 public class GlobHttpRequestHandlerTest {
     private static final Logger LOGGER = LoggerFactory.getLogger("test");
@@ -369,6 +384,791 @@ public class GlobHttpRequestHandlerTest {
         }
     }
 
+    @Test
+    public void largeBodyDecodedOnExecutor() throws IOException, ParseException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        httpServerRegister.register("/send", null)
+                .post(BodyContent.TYPE, null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                                .set(Response1.value, String.valueOf(body.get(BodyContent.DATA).length())))
+                )
+                .withExecutor(executorService)
+                .withIncrementalBody(true);
+        startServer();
+
+        String data = "0123456789".repeat(200_000);
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            HttpPost httpPost = new HttpPost("/send");
+            httpPost.setEntity(new StringEntity(GSonUtils.encode(BodyContent.TYPE.instantiate()
+                    .set(BodyContent.DATA, data), false), ContentType.APPLICATION_JSON));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("{\"value\":\"2000000\"}", EntityUtils.toString(httpResponse.getEntity()));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void largeBinaryBodyReadWhileReceived() throws IOException, ParseException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        httpServerRegister.register("/upload", null)
+                .postBin(null, null, (body, url, queryParameters, header) -> {
+                    InputStream stream = body.asStream().stream();
+                    byte[] buffer = new byte[1024];
+                    long total = 0;
+                    int read;
+                    while ((read = stream.read(buffer)) >= 0) {
+                        total += read;
+                    }
+                    byte[] response = Long.toString(total).getBytes(StandardCharsets.UTF_8);
+                    return CompletableFuture.completedFuture(HttpOutputData.asStream(new ByteArrayInputStream(response), response.length));
+                })
+                .withExecutor(executorService)
+                .withIncrementalBody(true);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            HttpPost httpPost = new HttpPost("/upload");
+            httpPost.setEntity(new ByteArrayEntity(new byte[5_000_000], ContentType.APPLICATION_OCTET_STREAM));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("5000000", EntityUtils.toString(httpResponse.getEntity()));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void incrementalBodyWithDirectExecutor() throws IOException, ParseException {
+        httpServerRegister.register("/send", null)
+                .post(BodyContent.TYPE, null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                                .set(Response1.value, String.valueOf(body.get(BodyContent.DATA).length())))
+                )
+                .withExecutor(Runnable::run)
+                .withIncrementalBody(true);
+        startServer();
+
+        String data = "0123456789".repeat(200_000);
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            HttpPost httpPost = new HttpPost("/send");
+            httpPost.setEntity(new StringEntity(GSonUtils.encode(BodyContent.TYPE.instantiate()
+                    .set(BodyContent.DATA, data), false), ContentType.APPLICATION_JSON));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("{\"value\":\"2000000\"}", EntityUtils.toString(httpResponse.getEntity()));
+        }
+    }
+
+    @Test
+    public void gzipRequestBody() throws IOException, ParseException {
+        httpServerRegister.register("/send", null)
+                .post(BodyContent.TYPE, null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                                .set(Response1.value, String.valueOf(body.get(BodyContent.DATA).length())))
+                )
+                .withMaxDecompressedBodySize(100_000);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            HttpPost httpPost = new HttpPost("/send");
+            httpPost.setEntity(new ByteArrayEntity(gzip(GSonUtils.encode(BodyContent.TYPE.instantiate()
+                    .set(BodyContent.DATA, "a".repeat(50_000)), false)), ContentType.APPLICATION_JSON, "gzip"));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("{\"value\":\"50000\"}", EntityUtils.toString(httpResponse.getEntity()));
+
+            httpPost = new HttpPost("/send");
+            httpPost.setEntity(new ByteArrayEntity(gzip(GSonUtils.encode(BodyContent.TYPE.instantiate()
+                    .set(BodyContent.DATA, "a".repeat(200_000)), false)), ContentType.APPLICATION_JSON, "gzip"));
+            httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(413, httpResponse.getCode());
+        }
+    }
+
+    private static byte[] gzip(String data) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(bytes)) {
+            gzipOutputStream.write(data.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void binaryBodyAndResponse() throws IOException {
+        httpServerRegister.register("/bin", null)
+                .post(BinData.TYPE, null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(BinData.TYPE.instantiate()
+                                .set(BinData.name, body.get(BinData.name) + " received")
+                                .set(BinData.count, body.get(BinData.count) + 1))
+                );
+        httpServerRegister.register("/json", null)
+                .get(null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                                .set(Response1.value, "no field number"))
+                );
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            HttpPost httpPost = GlobHttpUtils.acceptBin(GlobHttpUtils.createBinPost("/bin", null, BinData.TYPE.instantiate()
+                    .set(BinData.name, "data")
+                    .set(BinData.count, 41)));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals(GlobBinaryFormat.MIME_TYPE, ContentType.parse(httpResponse.getEntity().getContentType()).getMimeType());
+            Glob response = GlobHttpUtils.decode(httpResponse.getEntity(), BinData.TYPE);
+            Assert.assertEquals("data received", response.get(BinData.name));
+            Assert.assertEquals(42, response.get(BinData.count).intValue());
+
+            httpResponse = httpclient.execute(target, GlobHttpUtils.acceptBin(new HttpGet("/json")));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals(ContentType.APPLICATION_JSON.getMimeType(), ContentType.parse(httpResponse.getEntity().getContentType()).getMimeType());
+            Assert.assertEquals("no field number", GlobHttpUtils.decode(httpResponse.getEntity(), Response1.TYPE).get(Response1.value));
+
+            // json preferred by the client.
+            httpPost = GlobHttpUtils.createBinPost("/bin", null, BinData.TYPE.instantiate()
+                    .set(BinData.name, "data")
+                    .set(BinData.count, 1));
+            httpPost.setHeader(HttpHeaders.ACCEPT, GlobBinaryFormat.MIME_TYPE + ";q=0.5, application/json");
+            httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals(ContentType.APPLICATION_JSON.getMimeType(), ContentType.parse(httpResponse.getEntity().getContentType()).getMimeType());
+            Assert.assertEquals(HttpHeaders.ACCEPT, httpResponse.getFirstHeader(HttpHeaders.VARY).getValue());
+            EntityUtils.consume(httpResponse.getEntity());
+
+            httpPost = new HttpPost("/bin");
+            httpPost.setEntity(new ByteArrayEntity(new byte[]{(byte) 0xff, 1, 2}, GlobBinaryFormat.CONTENT_TYPE));
+            httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(400, httpResponse.getCode());
+        }
+    }
+
+    @Test
+    public void eTagAndNotModified() throws IOException {
+        AtomicInteger calls = new AtomicInteger();
+        httpServerRegister.register("/hashed", null)
+                .get(null, (body, url, queryParameters) -> {
+                    calls.incrementAndGet();
+                    return CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                            .set(Response1.value, "same content"));
+                })
+                .withETag();
+        httpServerRegister.register("/versioned", null)
+                .get(null, (body, url, queryParameters) -> {
+                    calls.incrementAndGet();
+                    return CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                            .set(Response1.value, "versioned content"));
+                })
+                .withETag((url, queryParameters, header) -> "v12");
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/hashed"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            EntityUtils.consume(httpResponse.getEntity());
+            String etag = httpResponse.getFirstHeader(HttpHeaders.ETAG).getValue();
+
+            HttpGet httpGet = new HttpGet("/hashed");
+            httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+            httpResponse = httpclient.execute(target, httpGet);
+            Assert.assertEquals(304, httpResponse.getCode());
+            Assert.assertEquals(etag, httpResponse.getFirstHeader(HttpHeaders.ETAG).getValue());
+            Assert.assertEquals(2, calls.get());
+
+            httpGet = new HttpGet("/versioned");
+            httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, "\"v11\"");
+            httpResponse = httpclient.execute(target, httpGet);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("W/\"v12\"", httpResponse.getFirstHeader(HttpHeaders.ETAG).getValue());
+            EntityUtils.consume(httpResponse.getEntity());
+            Assert.assertEquals(3, calls.get());
+
+            httpGet = new HttpGet("/versioned");
+            httpGet.setHeader(HttpHeaders.IF_NONE_MATCH, "\"v12\"");
+            httpResponse = httpclient.execute(target, httpGet);
+            Assert.assertEquals(304, httpResponse.getCode());
+            Assert.assertEquals("W/\"v12\"", httpResponse.getFirstHeader(HttpHeaders.ETAG).getValue());
+            Assert.assertEquals(HttpHeaders.ACCEPT, httpResponse.getFirstHeader(HttpHeaders.VARY).getValue());
+            Assert.assertEquals(3, calls.get());
+        }
+    }
+
+    @Test
+    public void responseCache() throws IOException, ParseException {
+        AtomicInteger calls = new AtomicInteger();
+        httpServerRegister.register("/cached/{id}", URLOneParameter.TYPE)
+                .get(null, (body, url, queryParameters) -> {
+                    calls.incrementAndGet();
+                    return CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                            .set(Response1.value, "content " + url.get(URLOneParameter.ID)));
+                })
+                .withResponseCache(Duration.ofMinutes(1), 1024 * 1024);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            for (int i = 0; i < 3; i++) {
+                CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/cached/123"));
+                Assert.assertEquals(200, httpResponse.getCode());
+                Assert.assertEquals("{\"value\":\"content 123\"}", EntityUtils.toString(httpResponse.getEntity()));
+            }
+            Assert.assertEquals(1, calls.get());
+
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/cached/456"));
+            Assert.assertEquals("{\"value\":\"content 456\"}", EntityUtils.toString(httpResponse.getEntity()));
+            Assert.assertEquals(2, calls.get());
+        }
+    }
+
+    @Test
+    public void singleFlight() {
+        SingleFlight singleFlight = new SingleFlight();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<HttpOutputData> pending = new CompletableFuture<>();
+        SingleFlight.Call call = () -> {
+            calls.incrementAndGet();
+            return pending;
+        };
+        SingleFlight.Flight first = singleFlight.join("a", call);
+        SingleFlight.Flight second = singleFlight.join("a", call);
+        Assert.assertSame(first, second);
+        Assert.assertTrue(first.isShared());
+        Assert.assertNotSame(first, singleFlight.join("b", call));
+        Assert.assertEquals(2, calls.get());
+        Assert.assertEquals(1, singleFlight.getCoalesced());
+
+        pending.complete(HttpOutputData.asGlob(Response1.TYPE.instantiate().set(Response1.value, "shared")));
+        Assert.assertEquals("shared", first.result().join().getGlob().get(Response1.value));
+        Assert.assertEquals(0, singleFlight.getInFlight());
+        Assert.assertNotSame(first, singleFlight.join("a", call));
+        Assert.assertEquals(3, calls.get());
+    }
+
+    @Test
+    public void loadShedding() throws Exception {
+        BoundedExecutor executor = new BoundedExecutor("shed", 1, 1);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        httpServerRegister.register("/slow", null)
+                .get(null, (body, url, queryParameters) -> {
+                    started.countDown();
+                    release.await();
+                    return CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                            .set(Response1.value, "done"));
+                })
+                .withExecutor(executor);
+        startServer();
+
+        HttpHost target = new HttpHost("http", "localhost", port);
+        ExecutorService clients = Executors.newFixedThreadPool(2);
+        Callable<Integer> call = () -> {
+            try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+                CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/slow"));
+                EntityUtils.consume(httpResponse.getEntity());
+                return httpResponse.getCode();
+            }
+        };
+        Future<Integer> running = clients.submit(call);
+        Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+        Future<Integer> queued = clients.submit(call);
+        long end = System.currentTimeMillis() + 10_000;
+        while (executor.getQueueDepth() == 0 && System.currentTimeMillis() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(1, executor.getQueueDepth());
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/slow"));
+            Assert.assertEquals(503, httpResponse.getCode());
+            Assert.assertEquals("1", httpResponse.getFirstHeader(HttpHeaders.RETRY_AFTER).getValue());
+        }
+        Assert.assertEquals(1, executor.getRejected());
+
+        release.countDown();
+        Assert.assertEquals(200, running.get(10, TimeUnit.SECONDS).intValue());
+        Assert.assertEquals(200, queued.get(10, TimeUnit.SECONDS).intValue());
+        clients.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    public void rateLimit() throws IOException {
+        httpServerRegister.register("/limited", null)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, "done")))
+                .withRateLimit(0.1, 2);
+        RateLimiter byKey = RateLimiter.perHeader(HeaderType.name, 0.1, 1);
+        httpServerRegister.register("/limitedByKey", null)
+                .get(null, HeaderType.TYPE, (body, url, queryParameters, header) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, header.get(HeaderType.name))))
+                .withRateLimiter(byKey);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            Assert.assertEquals(200, call(httpclient, target, new HttpGet("/limited")).getCode());
+            Assert.assertEquals(200, call(httpclient, target, new HttpGet("/limited")).getCode());
+            CloseableHttpResponse rejected = call(httpclient, target, new HttpGet("/limited"));
+            Assert.assertEquals(429, rejected.getCode());
+            int retryAfter = Integer.parseInt(rejected.getFirstHeader(HttpHeaders.RETRY_AFTER).getValue());
+            Assert.assertTrue(retryAfter > 0 && retryAfter <= 10);
+
+            for (String key : new String[]{"key1", "key2"}) {
+                HttpGet httpGet = new HttpGet("/limitedByKey");
+                httpGet.addHeader(FieldName.getName(HeaderType.name), key);
+                Assert.assertEquals(200, call(httpclient, target, httpGet).getCode());
+            }
+            HttpGet httpGet = new HttpGet("/limitedByKey");
+            httpGet.addHeader(FieldName.getName(HeaderType.name), "key1");
+            Assert.assertEquals(429, call(httpclient, target, httpGet).getCode());
+            Assert.assertEquals(2, byKey.getKeys());
+            Assert.assertEquals(1, byKey.getRejected());
+        }
+    }
+
+    @Test
+    public void deadline() throws Exception {
+        ExecutorService slowConsumeExecutor = Executors.newSingleThreadExecutor();
+        ExecutorService lateGlobsExecutor = Executors.newSingleThreadExecutor();
+        CompletableFuture<Glob> stuck = new CompletableFuture<>();
+        AtomicReference<Deadline> deadline = new AtomicReference<>();
+        httpServerRegister.register("/stuck", null)
+                .get(null, (body, url, queryParameters) -> {
+                    deadline.set(Deadline.current());
+                    return stuck;
+                })
+                .withTimeout(Duration.ofMillis(200));
+        httpServerRegister.register("/clientTimeout", null)
+                .get(null, (body, url, queryParameters) -> new CompletableFuture<>())
+                .withTimeoutHeader("X-Request-Timeout");
+        // expired while consume is called.
+        CompletableFuture<HttpOutputData> late = new CompletableFuture<>();
+        httpServerRegister.register("/slowConsume", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    Thread.sleep(300);
+                    return late;
+                })
+                .withExecutor(slowConsumeExecutor)
+                .withTimeout(Duration.ofMillis(100));
+        CountDownLatch globsClosed = new CountDownLatch(1);
+        httpServerRegister.register("/lateGlobs", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    Thread.sleep(300);
+                    return CompletableFuture.completedFuture(HttpOutputData.asGlobs(new ClosingIterator(globsClosed)));
+                })
+                .withExecutor(lateGlobsExecutor)
+                .withTimeout(Duration.ofMillis(100));
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            long start = System.nanoTime();
+            Assert.assertEquals(504, call(httpclient, target, new HttpGet("/stuck")).getCode());
+            Assert.assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(200));
+            Assert.assertTrue(stuck.isCancelled());
+            Assert.assertNotNull(deadline.get());
+            Assert.assertTrue(deadline.get().isExpired());
+
+            HttpGet httpGet = new HttpGet("/clientTimeout");
+            httpGet.addHeader("X-Request-Timeout", "100");
+            Assert.assertEquals(504, call(httpclient, target, httpGet).getCode());
+
+            Assert.assertEquals(504, call(httpclient, target, new HttpGet("/slowConsume")).getCode());
+            Assert.assertEquals(504, call(httpclient, target, new HttpGet("/lateGlobs")).getCode());
+        } finally {
+            slowConsumeExecutor.shutdown();
+            lateGlobsExecutor.shutdown();
+        }
+        Assert.assertTrue(globsClosed.await(5, TimeUnit.SECONDS));
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!late.isCancelled() && System.nanoTime() < end) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(late.isCancelled());
+    }
+
+    private static class ClosingIterator implements Iterator<Glob>, AutoCloseable {
+        private final CountDownLatch closed;
+
+        ClosingIterator(CountDownLatch closed) {
+            this.closed = closed;
+        }
+
+        public boolean hasNext() {
+            return false;
+        }
+
+        public Glob next() {
+            throw new NoSuchElementException();
+        }
+
+        public void close() {
+            closed.countDown();
+        }
+    }
+
+    @Test
+    public void batch() throws Exception {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        httpServerRegister.register("/batchItem/{id}", URLOneParameter.TYPE)
+                .get(QueryParameter.TYPE, (body, url, queryParameters) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, url.get(URLOneParameter.ID) + " " + queryParameters.get(QueryParameter.NAME))))
+                .withExecutor(executorService);
+        httpServerRegister.register("/batchPost", null)
+                .post(BodyContent.TYPE, null, (body, url, queryParameters) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, body.get(BodyContent.DATA))));
+        httpServerRegister.register("/batchFail", null)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.failedFuture(new HttpException(403, "forbidden")));
+        httpServerRegister.register("/batchLimited", null)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.completedFuture(null))
+                .withRateLimit(0.01, 1);
+        httpServerRegister.register("/batchHeader", null)
+                .get(null, HeaderType.TYPE, (body, url, queryParameters, header) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, header.isSet(HeaderType.name) ? "set" : "empty")));
+        httpServerRegister.registerBatch("/batch", 5, 2);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            HttpPost httpPost = new HttpPost("/batch");
+            httpPost.setEntity(new StringEntity("{\"requests\":[" +
+                    "{\"verb\":\"GET\",\"url\":\"/batchItem/12?name=a\"}," +
+                    "{\"verb\":\"GET\",\"url\":\"/batchItem/13\",\"query\":\"name=b\"}," +
+                    "{\"verb\":\"POST\",\"url\":\"/batchPost\",\"body\":{\"DATA\":\"c\"}}," +
+                    "{\"verb\":\"GET\",\"url\":\"/batchFail\"}," +
+                    "{\"verb\":\"DELETE\",\"url\":\"/batchPost\"}]}", ContentType.APPLICATION_JSON));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Glob[] responses = GSonUtils.decode(EntityUtils.toString(httpResponse.getEntity()), HttpBatch.BatchResponse.TYPE)
+                    .getOrEmpty(HttpBatch.BatchResponse.responses);
+            Assert.assertEquals(5, responses.length);
+            Assert.assertEquals(200, responses[0].get(HttpBatch.BatchItemResponse.status).intValue());
+            Assert.assertEquals("{\"value\":\"12 a\"}", responses[0].get(HttpBatch.BatchItemResponse.body));
+            Assert.assertEquals("{\"value\":\"13 b\"}", responses[1].get(HttpBatch.BatchItemResponse.body));
+            Assert.assertEquals("{\"value\":\"c\"}", responses[2].get(HttpBatch.BatchItemResponse.body));
+            Assert.assertEquals(403, responses[3].get(HttpBatch.BatchItemResponse.status).intValue());
+            Assert.assertEquals(405, responses[4].get(HttpBatch.BatchItemResponse.status).intValue());
+
+            // each request go through the limits of its operation.
+            httpPost = new HttpPost("/batch");
+            httpPost.setEntity(new StringEntity("{\"requests\":[" +
+                    "{\"verb\":\"POST\",\"url\":\"/batchPost\",\"body\":[1]}," +
+                    "{\"verb\":\"GET\",\"url\":\"/batchLimited\"}," +
+                    "{\"verb\":\"GET\",\"url\":\"/batchLimited\"}," +
+                    "{\"verb\":\"GET\",\"url\":\"/batchHeader\"}]}", ContentType.APPLICATION_JSON));
+            httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            responses = GSonUtils.decode(EntityUtils.toString(httpResponse.getEntity()), HttpBatch.BatchResponse.TYPE)
+                    .getOrEmpty(HttpBatch.BatchResponse.responses);
+            Assert.assertEquals(400, responses[0].get(HttpBatch.BatchItemResponse.status).intValue());
+            Assert.assertEquals(204, responses[1].get(HttpBatch.BatchItemResponse.status).intValue());
+            Assert.assertEquals(429, responses[2].get(HttpBatch.BatchItemResponse.status).intValue());
+            // an operation with a header type get an empty header.
+            Assert.assertEquals(200, responses[3].get(HttpBatch.BatchItemResponse.status).intValue());
+            Assert.assertEquals("{\"value\":\"empty\"}", responses[3].get(HttpBatch.BatchItemResponse.body));
+
+            httpPost = new HttpPost("/batch");
+            httpPost.setEntity(new StringEntity("{\"requests\":[{},{},{},{},{},{}]}", ContentType.APPLICATION_JSON));
+            httpResponse = httpclient.execute(target, httpPost);
+            EntityUtils.consume(httpResponse.getEntity());
+            Assert.assertEquals(413, httpResponse.getCode());
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void ndjson() throws Exception {
+        ExecutorService executorService = Executors.newSingleThreadExecutor();
+        httpServerRegister.register("/export", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    Iterator<Glob> globs = IntStream.range(0, 10_000)
+                            .<Glob>mapToObj(i -> Response1.TYPE.instantiate().set(Response1.value, "row " + i))
+                            .iterator();
+                    return CompletableFuture.completedFuture(HttpOutputData.asGlobs(globs));
+                })
+                .withExecutor(executorService);
+        httpServerRegister.register("/published", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    SubmissionPublisher<Glob> publisher = new SubmissionPublisher<>();
+                    CompletableFuture.runAsync(() -> {
+                        while (!publisher.hasSubscribers()) {
+                            Thread.onSpinWait();
+                        }
+                        for (int i = 0; i < 100; i++) {
+                            publisher.submit(Response1.TYPE.instantiate().set(Response1.value, "event " + i));
+                        }
+                        publisher.close();
+                    });
+                    return CompletableFuture.completedFuture(HttpOutputData.asGlobs(publisher));
+                });
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/export"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("application/x-ndjson; charset=UTF-8", httpResponse.getEntity().getContentType());
+            String[] lines = EntityUtils.toString(httpResponse.getEntity()).split("\n");
+            Assert.assertEquals(10_000, lines.length);
+            Assert.assertEquals("{\"value\":\"row 0\"}", lines[0]);
+            Assert.assertEquals("{\"value\":\"row 9999\"}", lines[9999]);
+
+            httpResponse = httpclient.execute(target, new HttpGet("/published"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            lines = EntityUtils.toString(httpResponse.getEntity()).split("\n");
+            Assert.assertEquals(100, lines.length);
+            Assert.assertEquals("{\"value\":\"event 99\"}", lines[99]);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void ndjsonPublisherCancelledOnDisconnect() throws Exception {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        httpServerRegister.register("/silent", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    Flow.Publisher<Glob> silent = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+                        public void request(long n) {
+                        }
+
+                        public void cancel() {
+                            cancelled.countDown();
+                        }
+                    });
+                    return CompletableFuture.completedFuture(HttpOutputData.asGlobs(silent));
+                });
+        startServer();
+
+        try (Socket socket = new Socket("localhost", port)) {
+            socket.getOutputStream().write("GET /silent HTTP/1.1\r\nHost: localhost\r\n\r\n".getBytes(StandardCharsets.UTF_8));
+            socket.getOutputStream().flush();
+            BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            Assert.assertEquals("HTTP/1.1 200 OK", reader.readLine());
+        }
+        // the encoder waiting for the publisher is released when the client is gone.
+        Assert.assertTrue(cancelled.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void postStream() throws Exception {
+        httpServerRegister.register("/ingest", null)
+                .postStream(BodyContent.TYPE, null, null, (url, queryParameters, header) -> new HttpGlobStreamTreatment.GlobConsumer() {
+                    int count;
+                    String last;
+
+                    public void accept(Glob glob) {
+                        count++;
+                        last = glob.get(BodyContent.DATA);
+                    }
+
+                    public CompletableFuture<Glob> end() {
+                        return CompletableFuture.completedFuture(Response1.TYPE.instantiate().set(Response1.value, count + " " + last));
+                    }
+                });
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            StringBuilder ndjson = new StringBuilder();
+            for (int i = 0; i < 20_000; i++) {
+                ndjson.append("{\"DATA\":\"line ").append(i).append("\"}\n");
+            }
+            HttpPost httpPost = new HttpPost("/ingest");
+            httpPost.setEntity(new StringEntity(ndjson.toString(), ContentType.create("application/x-ndjson")));
+            CloseableHttpResponse httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("{\"value\":\"20000 line 19999\"}", EntityUtils.toString(httpResponse.getEntity()));
+
+            httpPost = new HttpPost("/ingest");
+            httpPost.setEntity(new StringEntity("[{\"DATA\":\"a\"}, {\"DATA\":\"b\"}]", ContentType.APPLICATION_JSON));
+            httpResponse = httpclient.execute(target, httpPost);
+            Assert.assertEquals("{\"value\":\"2 b\"}", EntityUtils.toString(httpResponse.getEntity()));
+
+            httpPost = new HttpPost("/ingest");
+            httpPost.setEntity(new StringEntity("[{\"DATA\":\"a\"}, 12]", ContentType.APPLICATION_JSON));
+            httpResponse = httpclient.execute(target, httpPost);
+            EntityUtils.consume(httpResponse.getEntity());
+            Assert.assertEquals(400, httpResponse.getCode());
+        }
+    }
+
+    private static CloseableHttpResponse call(CloseableHttpClient httpclient, HttpHost target, HttpGet httpGet) throws IOException {
+        CloseableHttpResponse httpResponse = httpclient.execute(target, httpGet);
+        EntityUtils.consume(httpResponse.getEntity());
+        return httpResponse;
+    }
+
+    @Test
+    public void blockingTreatment() throws IOException, ParseException {
+        AtomicReference<Thread> treatmentThread = new AtomicReference<>();
+        httpServerRegister.register("/blocking/{id}", URLOneParameter.TYPE)
+                .getBlocking(null, null, (body, url, queryParameters, header) -> {
+                    treatmentThread.set(Thread.currentThread());
+                    Thread.sleep(10);
+                    return Response1.TYPE.instantiate().set(Response1.value, "blocking " + url.get(URLOneParameter.ID));
+                });
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/blocking/12"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals("{\"value\":\"blocking 12\"}", EntityUtils.toString(httpResponse.getEntity()));
+        }
+        Thread thread = treatmentThread.get();
+        if (VirtualThreads.isAvailable()) {
+            Assert.assertTrue(thread.toString(), isVirtual(thread));
+        } else {
+            Assert.assertTrue(thread.getName(), thread.getName().startsWith("blocking-treatment-"));
+        }
+    }
+
+    // Thread.isVirtual is java 21.
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void metricsEndpoint() throws IOException, ParseException {
+        httpServerRegister.register("/measured/{id}", URLOneParameter.TYPE)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.completedFuture(Response1.TYPE.instantiate()
+                        .set(Response1.value, "measured")));
+        httpServerRegister.registerMetrics();
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            for (int i = 0; i < 2; i++) {
+                EntityUtils.consume(httpclient.execute(target, new HttpGet("/measured/" + i)).getEntity());
+            }
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/metrics"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertTrue(httpResponse.getEntity().getContentType().startsWith("text/plain"));
+            String metrics = EntityUtils.toString(httpResponse.getEntity());
+            Assert.assertTrue(metrics, metrics.contains(
+                    "globs_http_requests_total{route=\"/measured/{id}\",method=\"GET\",status=\"2xx\"} 2\n"));
+            Assert.assertTrue(metrics, metrics.contains(
+                    "globs_http_request_duration_seconds_count{route=\"/measured/{id}\",method=\"GET\",phase=\"treatment\"} 2\n"));
+            Assert.assertTrue(metrics, metrics.contains(
+                    "globs_http_request_duration_seconds_bucket{route=\"/measured/{id}\",method=\"GET\",phase=\"total\",le=\"+Inf\"} 2\n"));
+            Assert.assertTrue(metrics, metrics.contains("# TYPE globs_http_response_size_bytes histogram\n"));
+        }
+    }
+
+    @Test
+    public void accessLog() throws IOException, InterruptedException {
+        BlockingQueue<String> lines = new LinkedBlockingDeque<>();
+        AccessLog accessLog = new AccessLog(1024, lines::add).withSampling(1, 1);
+        httpServerRegister.withAccessLog(accessLog);
+        httpServerRegister.register("/secret/{id}", URLOneParameter.TYPE)
+                .get(null, (body, url, queryParameters) -> CompletableFuture.completedFuture(
+                        ResponseWithSensibleData.TYPE.instantiate()
+                                .set(ResponseWithSensibleData.field1, "password")
+                                .set(ResponseWithSensibleData.field2, "visible")))
+                .withSensitiveData(true);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/secret/3?token=abc"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            EntityUtils.consume(httpResponse.getEntity());
+        }
+        String line = lines.poll(10, TimeUnit.SECONDS);
+        Assert.assertNotNull(line);
+        Assert.assertTrue(line, line.contains("\"route\":\"/secret/{id}\""));
+        Assert.assertTrue(line, line.contains("\"path\":\"/secret/3\""));
+        Assert.assertTrue(line, line.contains("\"status\":200"));
+        Assert.assertTrue(line, line.contains("visible"));
+        Assert.assertFalse(line, line.contains("password"));
+        Assert.assertFalse(line, line.contains("token"));
+        accessLog.close();
+    }
+
+    @Test
+    public void streamedResponse() throws IOException, ParseException {
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        String data = "0123456789".repeat(200_000);
+        httpServerRegister.register("/receive", null)
+                .get(null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(BodyContent.TYPE.instantiate()
+                                .set(BodyContent.DATA, data))
+                )
+                .withExecutor(executorService)
+                .withStreamedResponse(true);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/receive"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals(-1, httpResponse.getEntity().getContentLength());
+            Assert.assertEquals(data, GSonUtils.decode(EntityUtils.toString(httpResponse.getEntity()), BodyContent.TYPE)
+                    .get(BodyContent.DATA));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void streamedResponseWithDirectExecutor() throws IOException, ParseException {
+        // more than the window of pending buffers : the encoder wait for the io thread.
+        String data = "0123456789".repeat(200_000);
+        httpServerRegister.register("/receive", null)
+                .get(null, (body, url, queryParameters) ->
+                        CompletableFuture.completedFuture(BodyContent.TYPE.instantiate()
+                                .set(BodyContent.DATA, data))
+                )
+                .withExecutor(Runnable::run)
+                .withStreamedResponse(true);
+        httpServerRegister.register("/export", null)
+                .getBin(null, null, (body, url, queryParameters, header) -> {
+                    Iterator<Glob> globs = IntStream.range(0, 10_000)
+                            .<Glob>mapToObj(i -> Response1.TYPE.instantiate().set(Response1.value, "row " + i))
+                            .iterator();
+                    return CompletableFuture.completedFuture(HttpOutputData.asGlobs(globs));
+                })
+                .withExecutor(Runnable::run);
+        startServer();
+
+        try (CloseableHttpClient httpclient = HttpClients.createDefault()) {
+            HttpHost target = new HttpHost("http", "localhost", port);
+
+            CloseableHttpResponse httpResponse = httpclient.execute(target, new HttpGet("/receive"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            Assert.assertEquals(-1, httpResponse.getEntity().getContentLength());
+            Assert.assertEquals(data, GSonUtils.decode(EntityUtils.toString(httpResponse.getEntity()), BodyContent.TYPE)
+                    .get(BodyContent.DATA));
+
+            httpResponse = httpclient.execute(target, new HttpGet("/export"));
+            Assert.assertEquals(200, httpResponse.getCode());
+            String[] lines = EntityUtils.toString(httpResponse.getEntity()).split("\n");
+            Assert.assertEquals(10_000, lines.length);
+            Assert.assertEquals("{\"value\":\"row 9999\"}", lines[9999]);
+        }
+    }
+
     @Test
     public void testGlobHttpContent() throws IOException, ParseException {
         String charsetName = "UTF-16";
@@ -522,14 +1322,14 @@ public class GlobHttpRequestHandlerTest {
     }
 
     @Test
-    @Ignore
     public void testCompressed() throws IOException, InterruptedException, ParseException {
         httpServerRegister.register("/query", null)
                 .get(QueryParameter2.TYPE, (body, url, queryParameters) ->
                         CompletableFuture.completedFuture(Response1.TYPE.instantiate()
                                 .set(Response1.value, queryParameters.get(QueryParameter2.value))
                         )
-                );
+                )
+                .compressAbove(0);
 
         startServer();
 
@@ -730,6 +1530,20 @@ public class GlobHttpRequestHandlerTest {
         }
     }
 
+    static public class BinData {
+        public static GlobType TYPE;
+
+        @FieldNumber_(1)
+        public static StringField name;
+
+        @FieldNumber_(2)
+        public static IntegerField count;
+
+        static {
+            GlobTypeLoaderFactory.create(BinData.class).load();
+        }
+    }
+
     static public class Response1 {
         public static GlobType TYPE;
 
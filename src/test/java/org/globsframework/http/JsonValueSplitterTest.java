@@ -0,0 +1,63 @@
+package org.globsframework.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JsonValueSplitterTest {
+
+    @Test
+    public void splitArray() throws IOException {
+        Assert.assertEquals(List.of("{\"a\":1}", "{\"b\":{\"c\":[1,2]}}", "{\"d\":\"}],{\\\"\"}"),
+                split(" [ {\"a\":1} ,{\"b\":{\"c\":[1,2]}},\n{\"d\":\"}],{\\\"\"} ]\n"));
+        Assert.assertEquals(List.of(), split("[]"));
+    }
+
+    @Test
+    public void splitNdJson() throws IOException {
+        Assert.assertEquals(List.of("{\"a\":1}", "{\"a\":2}", "{\"a\":3}"),
+                split("{\"a\":1}\n{\"a\":2}\r\n\n{\"a\":3}\n"));
+        Assert.assertEquals(List.of(), split(""));
+    }
+
+    @Test
+    public void invalidBody() throws IOException {
+        for (String body : new String[]{"[{\"a\":1}", "[{\"a\":1} {\"a\":2}]", "{\"a\":1", "[1, 2]", "[{\"a\":1}] x"}) {
+            try {
+                split(body);
+                Assert.fail(body);
+            } catch (HttpException e) {
+                Assert.assertEquals(400, e.getCode());
+            }
+        }
+    }
+
+    @Test
+    public void itemTooLarge() throws IOException {
+        Assert.assertEquals(List.of("{\"a\":1}", "{\"b\":2}"), split("[{\"a\":1},{\"b\":2}]", 7));
+        try {
+            split("[{\"a\":1},{\"b\":22}]", 7);
+            Assert.fail();
+        } catch (HttpException e) {
+            Assert.assertEquals(413, e.getCode());
+        }
+    }
+
+    private static List<String> split(String body) throws IOException {
+        return split(body, JsonValueSplitter.DEFAULT_MAX_ITEM_SIZE);
+    }
+
+    private static List<String> split(String body, int maxItemSize) throws IOException {
+        JsonValueSplitter splitter = new JsonValueSplitter(new StringReader(body), maxItemSize);
+        List<String> values = new ArrayList<>();
+        String value;
+        while ((value = splitter.next()) != null) {
+            values.add(value);
+        }
+        return values;
+    }
+}
@@ -0,0 +1,110 @@
+package org.globsframework.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class PublisherIteratorTest {
+
+    @Test
+    public void readAllItems() throws InterruptedException {
+        SubmissionPublisher<Integer> publisher = new SubmissionPublisher<>();
+        PublisherIterator<Integer> iterator = new PublisherIterator<>(publisher, 8);
+        Thread producer = new Thread(() -> {
+            while (!publisher.hasSubscribers()) {
+                Thread.onSpinWait();
+            }
+            for (int i = 0; i < 1000; i++) {
+                publisher.submit(i);
+            }
+            publisher.close();
+        });
+        producer.start();
+        List<Integer> items = new ArrayList<>();
+        iterator.forEachRemaining(items::add);
+        producer.join();
+        Assert.assertEquals(1000, items.size());
+        Assert.assertEquals(999, items.get(999).intValue());
+    }
+
+    @Test
+    public void requestOnlyWhatIsRead() {
+        AtomicLong requested = new AtomicLong();
+        Flow.Publisher<Integer> publisher = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+                long from = requested.getAndAdd(n);
+                for (long i = from; i < from + n; i++) {
+                    subscriber.onNext((int) i);
+                }
+            }
+
+            public void cancel() {
+            }
+        });
+        PublisherIterator<Integer> iterator = new PublisherIterator<>(publisher, 10);
+        Assert.assertEquals(0, requested.get());
+        Assert.assertTrue(iterator.hasNext());
+        Assert.assertEquals(10, requested.get());
+        for (int i = 0; i < 5; i++) {
+            Assert.assertEquals(i, iterator.next().intValue());
+        }
+        Assert.assertEquals(15, requested.get());
+        Assert.assertTrue(iterator.hasAvailable());
+    }
+
+    @Test
+    public void closeEndsWaitingReader() throws InterruptedException {
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Flow.Publisher<Integer> silent = subscriber -> subscriber.onSubscribe(new Flow.Subscription() {
+            public void request(long n) {
+            }
+
+            public void cancel() {
+                cancelled.countDown();
+            }
+        });
+        PublisherIterator<Integer> iterator = new PublisherIterator<>(silent, 10);
+        AtomicBoolean hasNext = new AtomicBoolean(true);
+        Thread reader = new Thread(() -> hasNext.set(iterator.hasNext()));
+        reader.start();
+        while (reader.getState() != Thread.State.WAITING) {
+            Thread.onSpinWait();
+        }
+        iterator.close();
+        reader.join(5000);
+        Assert.assertFalse(reader.isAlive());
+        Assert.assertFalse(hasNext.get());
+        Assert.assertEquals(0, cancelled.getCount());
+    }
+
+    @Test
+    public void errorIsThrownByHasNext() {
+        Flow.Publisher<Integer> publisher = subscriber -> {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                public void request(long n) {
+                }
+
+                public void cancel() {
+                }
+            });
+            subscriber.onNext(1);
+            subscriber.onError(new IllegalStateException("broken"));
+        };
+        PublisherIterator<Integer> iterator = new PublisherIterator<>(publisher, 10);
+        Assert.assertEquals(1, iterator.next().intValue());
+        try {
+            iterator.hasNext();
+            Assert.fail();
+        } catch (CompletionException e) {
+            Assert.assertEquals("broken", e.getCause().getMessage());
+        }
+    }
+}
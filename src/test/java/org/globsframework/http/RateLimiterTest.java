@@ -0,0 +1,40 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RateLimiterTest {
+
+    @Test
+    public void limitByKey() {
+        RateLimiter limiter = new RateLimiter(0.001, 1, (request, context) -> request.getFirstHeader("key").getValue(), 10);
+        Assert.assertEquals(0, limiter.tryAcquire(request("a"), null));
+        Assert.assertTrue(limiter.tryAcquire(request("a"), null) > 0);
+        Assert.assertEquals(0, limiter.tryAcquire(request("b"), null));
+        Assert.assertEquals(2, limiter.getKeys());
+        Assert.assertEquals(1, limiter.getRejected());
+    }
+
+    @Test
+    public void overflowKeysHaveTheirOwnLimit() {
+        RateLimiter limiter = new RateLimiter(0.001, 1, (request, context) -> request.getFirstHeader("key").getValue(), 2)
+                .withOverflowLimit(0.001, 3);
+        Assert.assertEquals(0, limiter.tryAcquire(request("a"), null));
+        Assert.assertEquals(0, limiter.tryAcquire(request("b"), null));
+        // map full : the new keys share the overflow bucket.
+        Assert.assertEquals(0, limiter.tryAcquire(request("c"), null));
+        Assert.assertEquals(0, limiter.tryAcquire(request("d"), null));
+        Assert.assertEquals(0, limiter.tryAcquire(request("e"), null));
+        Assert.assertTrue(limiter.tryAcquire(request("f"), null) > 0);
+        Assert.assertEquals(2, limiter.getKeys());
+        // the known keys keep their own bucket.
+        Assert.assertTrue(limiter.tryAcquire(request("a"), null) > 0);
+    }
+
+    private static BasicHttpRequest request(String key) {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        request.addHeader("key", key);
+        return request;
+    }
+}
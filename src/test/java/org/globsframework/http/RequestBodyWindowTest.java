@@ -0,0 +1,45 @@
+package org.globsframework.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RequestBodyWindowTest {
+
+    @Test
+    public void capacityIsGivenBackWhenRead() {
+        List<Integer> updates = new ArrayList<>();
+        RequestBodyWindow window = new RequestBodyWindow(100);
+
+        window.received(40);
+        window.updateCapacity(updates::add);
+        Assert.assertEquals(List.of(60), updates);
+
+        window.received(60);
+        window.updateCapacity(updates::add);
+        Assert.assertEquals(List.of(60), updates);
+
+        window.read(30);
+        Assert.assertEquals(List.of(60), updates);
+
+        window.read(30);
+        Assert.assertEquals(List.of(60, 60), updates);
+    }
+
+    @Test
+    public void releaseAcceptRemainingData() {
+        List<Integer> updates = new ArrayList<>();
+        RequestBodyWindow window = new RequestBodyWindow(100);
+        window.received(100);
+        window.updateCapacity(updates::add);
+        Assert.assertTrue(updates.isEmpty());
+
+        window.release();
+        Assert.assertEquals(List.of(100), updates);
+        window.received(100);
+        window.updateCapacity(updates::add);
+        Assert.assertEquals(List.of(100, 100), updates);
+    }
+}
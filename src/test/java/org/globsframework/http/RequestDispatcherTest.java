@@ -0,0 +1,83 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.core.metamodel.fields.StringArrayField;
+import org.globsframework.core.metamodel.fields.StringField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+public class RequestDispatcherTest {
+
+    @Test
+    public void literalAndParameterSegments() {
+        RequestDispatcher dispatcher = new RequestDispatcher("test");
+        GlobHttpRequestHandlerBuilder withParam = register(dispatcher, "/a/{id}", URLParam.TYPE);
+        GlobHttpRequestHandlerBuilder literal = register(dispatcher, "/a/b", null);
+        GlobHttpRequestHandlerBuilder deeper = register(dispatcher, "/a/{id}/c", URLParam.TYPE);
+
+        Assert.assertSame(literal, dispatcher.find(UrlPath.parse("/a/b")));
+        Assert.assertSame(withParam, dispatcher.find(UrlPath.parse("/a/x")));
+        Assert.assertSame(deeper, dispatcher.find(UrlPath.parse("/a/b/c")));
+        Assert.assertSame(deeper, dispatcher.find(UrlPath.parse("/a/x/c")));
+        Assert.assertNull(dispatcher.find(UrlPath.parse("/a/x/c/d")));
+        Assert.assertNull(dispatcher.find(UrlPath.parse("/b")));
+    }
+
+    @Test
+    public void wildcardKeepLongestPrefix() {
+        RequestDispatcher dispatcher = new RequestDispatcher("test");
+        GlobHttpRequestHandlerBuilder all = register(dispatcher, "/{path}", URLWithArray.TYPE);
+        GlobHttpRequestHandlerBuilder path = register(dispatcher, "/path/{path}", URLWithArray.TYPE);
+        GlobHttpRequestHandlerBuilder exact = register(dispatcher, "/path/exact", null);
+
+        Assert.assertSame(exact, dispatcher.find(UrlPath.parse("/path/exact")));
+        Assert.assertSame(path, dispatcher.find(UrlPath.parse("/path/with")));
+        Assert.assertSame(path, dispatcher.find(UrlPath.parse("/path/with/additional/expected")));
+        Assert.assertSame(all, dispatcher.find(UrlPath.parse("/path")));
+        Assert.assertSame(all, dispatcher.find(UrlPath.parse("/other/path")));
+    }
+
+    @Test
+    public void manyRoutes() {
+        RequestDispatcher dispatcher = new RequestDispatcher("test");
+        GlobHttpRequestHandlerBuilder[] builders = new GlobHttpRequestHandlerBuilder[2000];
+        for (int i = 0; i < builders.length; i++) {
+            builders[i] = register(dispatcher, "/service" + i + "/item/{id}", URLParam.TYPE);
+        }
+        for (int i = 0; i < builders.length; i++) {
+            Assert.assertSame(builders[i], dispatcher.find(UrlPath.parse("/service" + i + "/item/" + i)));
+        }
+    }
+
+    private static GlobHttpRequestHandlerBuilder register(RequestDispatcher dispatcher, String url, GlobType urlType) {
+        DefaultHttpOperation operation = new DefaultHttpOperation(HttpOp.get, null, null,
+                (body, pathParameters, queryParameters, header) -> CompletableFuture.completedFuture(null));
+        GlobHttpRequestHandlerBuilder builder = new GlobHttpRequestHandlerBuilder("test",
+                new DefaultHttpReceiver(url, urlType, operation));
+        dispatcher.register(builder.createRegExp(), builder);
+        return builder;
+    }
+
+    public static class URLParam {
+        public static GlobType TYPE;
+
+        public static StringField id;
+
+        static {
+            GlobTypeLoaderFactory.create(URLParam.class).load();
+        }
+    }
+
+    public static class URLWithArray {
+        public static GlobType TYPE;
+
+        public static StringArrayField path;
+
+        static {
+            GlobTypeLoaderFactory.create(URLWithArray.class).load();
+        }
+    }
+}
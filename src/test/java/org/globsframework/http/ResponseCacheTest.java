@@ -0,0 +1,68 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.ContentType;
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.core.metamodel.fields.StringField;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Duration;
+
+public class ResponseCacheTest {
+
+    @Test
+    public void responseCacheEviction() {
+        ResponseCache cache = new ResponseCache("GET /test", Duration.ofMinutes(1), 10);
+        cache.put("a", new ResponseCache.Cached(new byte[4], ContentType.APPLICATION_JSON, null, null));
+        cache.put("b", new ResponseCache.Cached(new byte[4], ContentType.APPLICATION_JSON, null, null));
+        Assert.assertNotNull(cache.get("a"));
+        cache.put("c", new ResponseCache.Cached(new byte[4], ContentType.APPLICATION_JSON, null, null));
+        Assert.assertNull(cache.get("b"));
+        Assert.assertNotNull(cache.get("a"));
+        Assert.assertNotNull(cache.get("c"));
+        Assert.assertEquals(8, cache.getBytes());
+        Assert.assertEquals(1, cache.getEvictions());
+        Assert.assertEquals(0.75, cache.getHitRatio(), 0.001);
+
+        ResponseCache expired = new ResponseCache("GET /test", Duration.ZERO, 10);
+        expired.put("a", new ResponseCache.Cached(new byte[4], ContentType.APPLICATION_JSON, null, null));
+        Assert.assertNull(expired.get("a"));
+        Assert.assertEquals(0, expired.getBytes());
+    }
+
+    @Test
+    public void keyFromPathAndHeaders() {
+        Assert.assertEquals(ResponseCache.key(request("/test/1?a=1", "v", "other"), Header.TYPE),
+                ResponseCache.key(request("/test/1?a=1", "v", "ignored"), Header.TYPE));
+        Assert.assertNotEquals(ResponseCache.key(request("/test/1?a=1", "v", null), Header.TYPE),
+                ResponseCache.key(request("/test/1?a=2", "v", null), Header.TYPE));
+        Assert.assertNotEquals(ResponseCache.key(request("/test/1", "v", null), Header.TYPE),
+                ResponseCache.key(request("/test/1", "w", null), Header.TYPE));
+        Assert.assertNotEquals(ResponseCache.key(request("/test/1", "", null), Header.TYPE),
+                ResponseCache.key(request("/test/1", null, null), Header.TYPE));
+        Assert.assertEquals("/test/1\n", ResponseCache.key(request("/test/1", "v", null), null));
+    }
+
+    private static BasicHttpRequest request(String path, String version, String other) {
+        BasicHttpRequest request = new BasicHttpRequest("GET", path);
+        if (version != null) {
+            request.addHeader("version", version);
+        }
+        if (other != null) {
+            request.addHeader("other", other);
+        }
+        return request;
+    }
+
+    public static class Header {
+        public static GlobType TYPE;
+
+        public static StringField version;
+
+        static {
+            GlobTypeLoaderFactory.create(Header.class).load();
+        }
+    }
+}
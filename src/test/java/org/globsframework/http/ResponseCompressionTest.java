@@ -0,0 +1,96 @@
+package org.globsframework.http;
+
+import org.apache.hc.core5.http.message.BasicHttpRequest;
+import org.globsframework.http.streams.MultiBufferOutputStream;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+public class ResponseCompressionTest {
+
+    @Test
+    public void negotiate() {
+        Assert.assertNull(ResponseCompression.negotiate(request(null)));
+        Assert.assertNull(ResponseCompression.negotiate(request("identity")));
+        Assert.assertEquals("gzip", ResponseCompression.negotiate(request("gzip, deflate")));
+        Assert.assertEquals("deflate", ResponseCompression.negotiate(request("deflate, gzip;q=0.5")));
+        Assert.assertEquals("deflate", ResponseCompression.negotiate(request("gzip;q=0, deflate")));
+        Assert.assertEquals("gzip", ResponseCompression.negotiate(request("*")));
+        Assert.assertNull(ResponseCompression.negotiate(request("gzip;q=0, *;q=0")));
+        Assert.assertEquals("deflate", ResponseCompression.negotiate(request("gzip;q=0, *")));
+        Assert.assertNull(ResponseCompression.negotiate(request("gzip;q=0, deflate;q=0, *")));
+        Assert.assertEquals("gzip", ResponseCompression.negotiate(request("deflate;q=0.5, *")));
+    }
+
+    @Test
+    public void compressBuffers() throws IOException {
+        byte[] content = "{\"value\":\"some repeated content\"},".repeat(2000).getBytes(StandardCharsets.UTF_8);
+        MultiBufferOutputStream raw = new MultiBufferOutputStream();
+        raw.write(content);
+        raw.close();
+
+        MultiBufferOutputStream gzip = new MultiBufferOutputStream();
+        ResponseCompression.compress(raw.data(), raw.size(), ResponseCompression.GZIP, gzip);
+        Assert.assertTrue(gzip.size() < content.length / 10);
+        Assert.assertArrayEquals(content, new GZIPInputStream(new ByteArrayInputStream(toBytes(gzip))).readAllBytes());
+
+        MultiBufferOutputStream deflate = new MultiBufferOutputStream();
+        ResponseCompression.compress(raw.data(), raw.size(), ResponseCompression.DEFLATE, deflate);
+        Assert.assertArrayEquals(content, new InflaterInputStream(new ByteArrayInputStream(toBytes(deflate))).readAllBytes());
+        Assert.assertTrue(ResponseCompression.getCompressionRatio() < 0.1);
+    }
+
+    @Test
+    public void compressStream() throws IOException {
+        byte[] content = "{\"value\":\"some repeated content\"}\n".repeat(2000).getBytes(StandardCharsets.UTF_8);
+        long compressedBytes = ResponseCompression.getCompressedBytes();
+        for (String encoding : new String[]{ResponseCompression.GZIP, ResponseCompression.DEFLATE}) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            OutputStream out = ResponseCompression.wrap(bytes, encoding);
+            out.write(content, 0, 100);
+            out.flush();
+            // the first line can be decoded before the end of the stream.
+            InputStream partial = encoding.equals(ResponseCompression.GZIP) ?
+                    new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())) :
+                    new InflaterInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            Assert.assertEquals(100, partial.readNBytes(100).length);
+            out.write(content, 100, content.length - 100);
+            out.close();
+            InputStream in = encoding.equals(ResponseCompression.GZIP) ?
+                    new GZIPInputStream(new ByteArrayInputStream(bytes.toByteArray())) :
+                    new InflaterInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            Assert.assertArrayEquals(content, in.readAllBytes());
+            compressedBytes += bytes.size();
+        }
+        Assert.assertEquals(compressedBytes, ResponseCompression.getCompressedBytes());
+        Assert.assertTrue(ResponseCompression.getCompressionNanos() > 0);
+    }
+
+    private static byte[] toBytes(MultiBufferOutputStream out) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (ByteBuffer buffer : out.data()) {
+            ByteBuffer duplicate = buffer.duplicate();
+            byte[] array = new byte[duplicate.remaining()];
+            duplicate.get(array);
+            bytes.writeBytes(array);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BasicHttpRequest request(String acceptEncoding) {
+        BasicHttpRequest request = new BasicHttpRequest("GET", "/");
+        if (acceptEncoding != null) {
+            request.addHeader("Accept-Encoding", acceptEncoding);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,137 @@
+package org.globsframework.http;
+
+import org.globsframework.core.metamodel.GlobType;
+import org.globsframework.core.metamodel.GlobTypeLoaderFactory;
+import org.globsframework.core.metamodel.fields.StringField;
+import org.globsframework.core.model.FieldValues;
+import org.globsframework.core.model.Glob;
+import org.globsframework.http.streams.WindowedOutputStream;
+import org.globsframework.serialisation.model.FieldNumber_;
+import org.globsframework.shared.InMemorySharedDataAccess;
+import org.globsframework.shared.model.PathIndex_;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+public class ServerSentEventsTest {
+
+    @Test
+    public void currentGlobsThenChanges() {
+        InMemorySharedDataAccess sharedDataAccess = new InMemorySharedDataAccess();
+        sharedDataAccess.register(device("a", "on"));
+        ServerSentEvents events = new ServerSentEvents(sharedDataAccess, Device.TYPE, FieldValues.EMPTY)
+                .withHeartbeat(Duration.ZERO);
+
+        ServerSentEvents.Connection connection = events.connect(null);
+        String frames = poll(connection);
+        Assert.assertTrue(frames, frames.startsWith("event: reset\ndata: 1\n\nevent: put\ndata: {\"id\":\"a\",\"state\":\"on\"}\n\n"));
+        String lastId = lastId(frames);
+
+        sharedDataAccess.register(device("b", "off"));
+        sharedDataAccess.delete(Device.TYPE, device("a", "on"));
+        frames = poll(connection);
+        Assert.assertTrue(frames, frames.contains("event: put\ndata: {\"id\":\"b\",\"state\":\"off\"}\n\n"));
+        Assert.assertTrue(frames, frames.contains("event: delete\ndata: {\"id\":\"a\",\"state\":\"on\"}\n\n"));
+        Assert.assertEquals(2, events.getRevision());
+
+        // resumed from the history : only the missed events.
+        ServerSentEvents.Connection resumed = events.connect(lastId);
+        frames = poll(resumed);
+        Assert.assertFalse(frames, frames.contains("event: reset"));
+        Assert.assertTrue(frames, frames.contains("\"id\":\"b\""));
+        Assert.assertTrue(frames, frames.contains("event: delete"));
+
+        // unknown id : the current globs.
+        frames = poll(events.connect("other-12"));
+        Assert.assertTrue(frames, frames.startsWith("event: reset\ndata: 1\n\n"));
+        Assert.assertEquals(3, events.getConnections());
+        events.close();
+    }
+
+    @Test
+    public void slowClientIsEvicted() {
+        InMemorySharedDataAccess sharedDataAccess = new InMemorySharedDataAccess();
+        ServerSentEvents events = new ServerSentEvents(sharedDataAccess, Device.TYPE, FieldValues.EMPTY)
+                .withHeartbeat(Duration.ZERO)
+                .withMaxQueuedEvents(2);
+        ServerSentEvents.Connection connection = events.connect(null);
+        for (int i = 0; i < 5; i++) {
+            sharedDataAccess.register(device("d" + i, "on"));
+        }
+        Assert.assertEquals(1, events.getEvicted());
+        Assert.assertEquals(0, events.getConnections());
+        Assert.assertNull(connection.poll());
+    }
+
+    @Test
+    public void currentGlobsAreNotCountedInTheQueue() {
+        InMemorySharedDataAccess sharedDataAccess = new InMemorySharedDataAccess();
+        for (int i = 0; i < 10; i++) {
+            sharedDataAccess.register(device("d" + i, "on"));
+        }
+        ServerSentEvents events = new ServerSentEvents(sharedDataAccess, Device.TYPE, FieldValues.EMPTY)
+                .withHeartbeat(Duration.ZERO)
+                .withMaxQueuedEvents(2);
+        ServerSentEvents.Connection connection = events.connect(null);
+        sharedDataAccess.register(device("d10", "on"));
+        String frames = poll(connection);
+        Assert.assertEquals(0, events.getEvicted());
+        Assert.assertEquals(11, frames.split("event: put").length - 1);
+        Assert.assertTrue(frames, frames.startsWith("event: reset\ndata: 10\n\n"));
+        events.close();
+    }
+
+    @Test
+    public void eventsAreDroppedForSlowClient() {
+        InMemorySharedDataAccess sharedDataAccess = new InMemorySharedDataAccess();
+        ServerSentEvents events = new ServerSentEvents(sharedDataAccess, Device.TYPE, FieldValues.EMPTY)
+                .withHeartbeat(Duration.ZERO)
+                .withMaxQueuedEvents(4)
+                .dropOnOverflow();
+        ServerSentEvents.Connection connection = events.connect(null);
+        for (int i = 0; i < 5; i++) {
+            sharedDataAccess.register(device("d" + i, "on"));
+        }
+        Assert.assertEquals(1, events.getDropped());
+        Assert.assertEquals(1, events.getConnections());
+        Assert.assertNotNull(connection.poll());
+        connection.close();
+        Assert.assertEquals(0, events.getConnections());
+    }
+
+    private static String poll(ServerSentEvents.Connection connection) {
+        StringBuilder frames = new StringBuilder();
+        ByteBuffer frame;
+        while ((frame = connection.poll()) != null && frame != WindowedOutputStream.PENDING) {
+            frames.append(StandardCharsets.UTF_8.decode(frame));
+        }
+        return frames.toString();
+    }
+
+    private static String lastId(String frames) {
+        int start = frames.lastIndexOf("id: ") + 4;
+        return frames.substring(start, frames.indexOf('\n', start));
+    }
+
+    private static Glob device(String id, String state) {
+        return Device.TYPE.instantiate().set(Device.id, id).set(Device.state, state);
+    }
+
+    public static class Device {
+        public static GlobType TYPE;
+
+        @FieldNumber_(1)
+        @PathIndex_(1)
+        public static StringField id;
+
+        @FieldNumber_(2)
+        public static StringField state;
+
+        static {
+            GlobTypeLoaderFactory.create(Device.class).load();
+        }
+    }
+}
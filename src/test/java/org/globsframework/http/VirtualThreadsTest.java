@@ -0,0 +1,36 @@
+package org.globsframework.http;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+
+public class VirtualThreadsTest {
+
+    @Test
+    public void platformThreadsAreBounded() throws InterruptedException {
+        ExecutorService executor = VirtualThreads.platformThreads(2);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        Runnable blocking = () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        executor.execute(blocking);
+        executor.execute(blocking);
+        started.await();
+        try {
+            executor.execute(blocking);
+            Assert.fail();
+        } catch (RejectedExecutionException e) {
+        }
+        release.countDown();
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,59 @@
+package org.globsframework.http.accesslog;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+public class AccessLogTest {
+
+    @Test
+    public void writtenWhenOfferedAndFlushedOnceIdle() throws InterruptedException {
+        List<String> lines = new CopyOnWriteArrayList<>();
+        AtomicInteger flushes = new AtomicInteger();
+        AccessLog accessLog = new AccessLog(16, new AccessLog.Writer() {
+            public void write(String line) {
+                lines.add(line);
+            }
+
+            public void flush() {
+                flushes.incrementAndGet();
+            }
+        });
+        Thread.sleep(50);
+        Assert.assertEquals(0, flushes.get());
+
+        for (int i = 0; i < 3; i++) {
+            accessLog.log(record(200 + i));
+        }
+        waitFor(() -> lines.size() == 3 && flushes.get() >= 1);
+        Thread.sleep(50);
+        int flushCount = flushes.get();
+        Thread.sleep(50);
+        Assert.assertEquals(flushCount, flushes.get());
+
+        // the parked thread is woken up by the next record.
+        accessLog.log(record(500));
+        waitFor(() -> lines.size() == 4 && flushes.get() == flushCount + 1);
+
+        accessLog.close();
+        Assert.assertEquals(4, accessLog.getWritten());
+        Assert.assertTrue(lines.get(3), lines.get(3).contains("\"status\":500"));
+    }
+
+    private static AccessLogRecord record(int status) {
+        return new AccessLogRecord(0, "GET", "/test", "/test", status, 0, 0, new long[0], false, null, null);
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean()) {
+            Assert.assertTrue(System.nanoTime() < end);
+            Thread.sleep(1);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.globsframework.http.streams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class ByteBufferPoolTest {
+
+    @Test
+    public void reuseBySizeClass() {
+        ByteBufferPool pool = new ByteBufferPool(4 * 1024);
+        ByteBuffer buffer = pool.acquire(1500);
+        Assert.assertEquals(2048, buffer.capacity());
+        Assert.assertTrue(buffer.isDirect());
+        buffer.put((byte) 1);
+        pool.release(buffer);
+
+        ByteBuffer reused = pool.acquire(2000);
+        Assert.assertSame(buffer, reused);
+        Assert.assertEquals(0, reused.position());
+        Assert.assertEquals(2048, reused.limit());
+        Assert.assertEquals(1, pool.getHits());
+        Assert.assertEquals(1, pool.getMisses());
+
+        Assert.assertEquals(1024, pool.acquire(10).capacity());
+        Assert.assertEquals(2, pool.getMisses());
+    }
+
+    @Test
+    public void keepAtMostMaxBytesPerClass() {
+        ByteBufferPool pool = new ByteBufferPool(4 * 1024);
+        ByteBuffer[] buffers = new ByteBuffer[5];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = pool.acquire(1024);
+        }
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        Assert.assertEquals(4 * 1024, pool.getPooledBytes());
+        Assert.assertEquals(1, pool.getDiscarded());
+
+        pool.release(ByteBuffer.allocate(1024));
+        Assert.assertEquals(4 * 1024, pool.getPooledBytes());
+    }
+
+    @Test
+    public void multiBufferOutputStreamGiveBackItsBuffers() throws Exception {
+        ByteBufferPool pool = new ByteBufferPool(1024 * 1024);
+        MultiBufferOutputStream out = new MultiBufferOutputStream(pool);
+        out.write(new byte[10_000]);
+        out.close();
+        Assert.assertEquals(10_000, out.size());
+        int bufferCount = out.data().size();
+        out.release();
+        Assert.assertEquals(bufferCount, pool.getMisses());
+
+        MultiBufferOutputStream second = new MultiBufferOutputStream(pool);
+        second.write(new byte[10_000]);
+        second.close();
+        Assert.assertEquals(bufferCount, pool.getHits());
+    }
+}